@@ -0,0 +1,642 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import matsyir.pvpperformancetracker.controllers.FightPerformance;
+import matsyir.pvpperformancetracker.controllers.Fighter;
+import matsyir.pvpperformancetracker.models.AnimationData;
+import matsyir.pvpperformancetracker.models.CombatLevels;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+import matsyir.pvpperformancetracker.models.FightType;
+import matsyir.pvpperformancetracker.models.GearDictionary;
+import net.runelite.api.HeadIcon;
+
+// Compact binary encoding of fights, holding the same data as their json form. Integers are written as varints
+// (zigzag encoded when they can be negative), ticks & timestamps as the difference from the previous value, and
+// doubles as a varint of thousandths, rounded the same way as the json serializer so both forms are equivalent.
+// Enums are written as small ids into a table of their names written at the start of the data, rather than as
+// raw ordinals, so adding or reordering enum values in later versions can't break saved data. Gear arrays are
+// written in full the first time, then as an id, since players only use a handful of loadouts.
+// Read gear is interned through the GearDictionary. Each fighter's fight log entries are a length-prefixed block
+// that only depends on the enum table, so the FightLogStore can read them back by offset.
+public class FightHistoryCodec
+{
+	private static final int MAGIC = 0x50565054; // "PVPT"
+	// 2: gear written as dictionary ids
+	// 3: enum table in the header, fight log entries in self-contained blocks
+	private static final int VERSION = 3;
+	// fight log entry blocks are far smaller, anything larger can only be corrupted data.
+	private static final int MAX_BLOCK_LENGTH = 1 << 26;
+	// every enum value that is written, in the order of their ids in the enum table.
+	private static final List<Enum<?>> ENUM_TABLE = new ArrayList<>();
+	private static final List<String> ENUM_NAMES = new ArrayList<>();
+	private static final Map<Enum<?>, Integer> ENUM_IDS = new HashMap<>();
+	static
+	{
+		Collections.addAll(ENUM_TABLE, FightType.values());
+		Collections.addAll(ENUM_TABLE, HeadIcon.values());
+		Collections.addAll(ENUM_TABLE, AnimationData.values());
+		ENUM_TABLE.forEach((Enum<?> value) ->
+		{
+			ENUM_IDS.put(value, ENUM_NAMES.size());
+			ENUM_NAMES.add(value.name());
+		});
+	}
+
+	// flags for the first byte of each fight log entry
+	private static final int FULL_ENTRY = 1;
+	private static final int SPLASH = 1 << 1;
+	private static final int HAS_ATTACKER_GEAR = 1 << 2;
+	private static final int HAS_DEFENDER_GEAR = 1 << 3;
+	private static final int HAS_ATTACKER_LEVELS = 1 << 4;
+
+	// Writes fights to a stream, one at a time. The stream must be read in full by a Reader, since
+	// every fight depends on the values written before it.
+	public static class Writer
+	{
+		private final CountingOutputStream out;
+		private final Map<Enum<?>, Integer> enumIds;
+		private final Map<int[], Integer> gearIds = new IdentityHashMap<>(); // keyed by interned gear
+		// offset of each paged out fighter's fight log entries block, see FightLogStore.
+		@Getter
+		private final Map<FightLogStore.Page, Long> fightLogPageOffsets = new HashMap<>();
+		private long prevFightTime;
+		private long prevEntryTime;
+		private int prevEntryTick;
+
+		public Writer(OutputStream out) throws IOException
+		{
+			this(out, new HashMap<>());
+			writeVarInt(MAGIC);
+			writeVarInt(VERSION);
+			writeVarInt(ENUM_TABLE.size());
+			for (Enum<?> value : ENUM_TABLE)
+			{
+				enumIds.put(value, enumIds.size());
+				writeString(value.name());
+			}
+		}
+
+		// writer for a single block of fight log entries, using the enum table of its parent.
+		private Writer(OutputStream out, Map<Enum<?>, Integer> enumIds)
+		{
+			this.out = new CountingOutputStream(out);
+			this.enumIds = enumIds;
+		}
+
+		public void write(FightPerformance fight) throws IOException
+		{
+			out.write(1); // 1 for every fight, 0 marks the end.
+			writeVarLong(zigzag(fight.lastFightTime - prevFightTime));
+			prevFightTime = fight.lastFightTime;
+			writeEnum(fight.fightType);
+
+			writeFighter(fight.competitor);
+			writeFighter(fight.opponent);
+		}
+
+		// mark the end of the fights, this does not close the underlying stream.
+		public void finish() throws IOException
+		{
+			out.write(0);
+			out.flush();
+		}
+
+		private void writeFighter(Fighter fighter) throws IOException
+		{
+			if (fighter == null)
+			{
+				out.write(0);
+				return;
+			}
+			out.write(1);
+
+			writeString(fighter.getName());
+			writeVarInt(fighter.getAttackCount());
+			writeVarInt(fighter.getOffPraySuccessCount());
+			writeDouble(fighter.getDeservedDamage());
+			writeVarInt(fighter.getDamageDealt());
+			writeVarInt(fighter.getTotalMagicAttackCount());
+			writeVarInt(fighter.getMagicHitCount());
+			writeDouble(fighter.getMagicHitCountDeserved());
+			writeVarInt(fighter.getOffensivePraySuccessCount());
+			writeVarInt(fighter.getGhostBarrageCount());
+			writeDouble(fighter.getGhostBarrageDeservedDamage());
+			writeVarInt(fighter.getHpHealed());
+			out.write(fighter.isDead() ? 1 : 0);
+
+			// get the page before the entries: if it changes in between, the page that is mapped is no longer used.
+			FightLogStore.Page page = fighter.getFightLogPage();
+			List<FightLogEntry> entries = fighter.getFightLogEntries();
+			if (page != null && entries != null)
+			{
+				fightLogPageOffsets.put(page, out.getCount());
+			}
+			writeBlock(encodeFightLogEntries(entries, enumIds));
+		}
+
+		// a 4 byte length followed by the data, the same as the FightLogStore's page file.
+		private void writeBlock(byte[] data) throws IOException
+		{
+			out.write(data.length >>> 24);
+			out.write(data.length >>> 16);
+			out.write(data.length >>> 8);
+			out.write(data.length);
+			out.write(data);
+		}
+
+		private void writeFightLogEntries(List<FightLogEntry> entries) throws IOException
+		{
+			// 0 for null, otherwise the number of entries + 1
+			writeVarInt(entries == null ? 0 : entries.size() + 1);
+			if (entries == null) { return; }
+
+			for (FightLogEntry e : entries)
+			{
+				writeFightLogEntry(e);
+			}
+		}
+
+		private void writeFightLogEntry(FightLogEntry e) throws IOException
+		{
+			int flags = (e.isFullEntry() ? FULL_ENTRY : 0)
+				| (e.isSplash() ? SPLASH : 0)
+				| (e.getAttackerGear() != null ? HAS_ATTACKER_GEAR : 0)
+				| (e.getDefenderGear() != null ? HAS_DEFENDER_GEAR : 0)
+				| (e.getAttackerLevels() != null ? HAS_ATTACKER_LEVELS : 0);
+			out.write(flags);
+
+			writeVarLong(zigzag(e.getTime() - prevEntryTime));
+			prevEntryTime = e.getTime();
+			writeVarInt(zigzag(e.getTick() - prevEntryTick));
+			prevEntryTick = e.getTick();
+
+			if (e.getAttackerGear() != null)
+			{
+				writeGear(e.getAttackerGear());
+			}
+			writeEnum(e.getAttackerOverhead());
+			writeEnum(e.getAnimationData());
+			writeDouble(e.getDeservedDamage());
+			writeDouble(e.getAccuracy());
+			writeVarInt(zigzag(e.getMaxHit()));
+			writeVarInt(zigzag(e.getMinHit()));
+
+			if (e.getAttackerLevels() != null)
+			{
+				CombatLevels levels = e.getAttackerLevels();
+				writeVarInt(zigzag(levels.atk));
+				writeVarInt(zigzag(levels.str));
+				writeVarInt(zigzag(levels.def));
+				writeVarInt(zigzag(levels.range));
+				writeVarInt(zigzag(levels.mage));
+				writeVarInt(zigzag(levels.hp));
+			}
+
+			if (e.getDefenderGear() != null)
+			{
+				writeGear(e.getDefenderGear());
+			}
+			writeEnum(e.getDefenderOverhead());
+			writeVarInt(zigzag(e.getAttackerOffensivePray()));
+		}
+
+		// 0 followed by the gear the first time it's written, otherwise the gear's id + 1.
+		private void writeGear(int[] gear) throws IOException
+		{
+			gear = GearDictionary.intern(gear);
+			Integer id = gearIds.get(gear);
+			if (id != null)
+			{
+				writeVarInt(id + 1);
+				return;
+			}
+
+			gearIds.put(gear, gearIds.size());
+			writeVarInt(0);
+			writeVarInt(gear.length);
+			for (int itemId : gear)
+			{
+				writeVarInt(zigzag(itemId));
+			}
+		}
+
+		// 0 for null, otherwise the enum's id + 1.
+		private void writeEnum(Enum<?> value) throws IOException
+		{
+			if (value == null)
+			{
+				writeVarInt(0);
+				return;
+			}
+
+			Integer id = enumIds.get(value);
+			if (id == null)
+			{
+				throw new IOException("Enum value missing from the binary fight history enum table: " + value);
+			}
+			writeVarInt(id + 1);
+		}
+
+		private void writeDouble(double value) throws IOException
+		{
+			// same conversion as the json serializer: NaN as zero, otherwise rounded to 3 decimals.
+			long thousandths = Double.isNaN(value) ? 0 :
+				BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_UP).unscaledValue().longValue();
+			writeVarLong(zigzag(thousandths));
+		}
+
+		// 0 for null, otherwise the length of the UTF-8 bytes + 1
+		private void writeString(String value) throws IOException
+		{
+			if (value == null)
+			{
+				writeVarInt(0);
+				return;
+			}
+
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length + 1);
+			out.write(bytes);
+		}
+
+		private void writeVarInt(int value) throws IOException
+		{
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		private void writeVarLong(long value) throws IOException
+		{
+			while ((value & ~0x7FL) != 0)
+			{
+				out.write((int)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.write((int)value);
+		}
+	}
+
+	// Reads fights written by a Writer, one at a time.
+	public static class Reader
+	{
+		private final CountingInputStream in;
+		private final List<String> enumNames;
+		private final List<int[]> gears = new ArrayList<>();
+		private final int version;
+		// if set, fighters' fight log entries are paged out to it, to be read back from the snapshot being read.
+		private final FightLogStore snapshotStore;
+		private long prevFightTime;
+		private long prevEntryTime;
+		private int prevEntryTick;
+
+		public Reader(InputStream in) throws IOException
+		{
+			this(in, (FightLogStore) null);
+		}
+
+		public Reader(InputStream in, FightLogStore snapshotStore) throws IOException
+		{
+			this.in = new CountingInputStream(in);
+			this.snapshotStore = snapshotStore;
+			if (readVarInt() != MAGIC)
+			{
+				throw new IOException("Data is not in the binary fight history format");
+			}
+
+			version = readVarInt();
+			if (version < 1 || version > VERSION)
+			{
+				throw new IOException("Unsupported binary fight history version: " + version);
+			}
+
+			enumNames = new ArrayList<>();
+			if (version >= 3)
+			{
+				int size = readVarInt();
+				for (int i = 0; i < size; i++)
+				{
+					enumNames.add(readString());
+				}
+			}
+		}
+
+		// reader for a single block of fight log entries, using the enum table of its parent.
+		private Reader(InputStream in, List<String> enumNames)
+		{
+			this.in = new CountingInputStream(in);
+			this.enumNames = enumNames;
+			this.snapshotStore = null;
+			version = VERSION;
+		}
+
+		// returns the next fight, or null once every fight was read.
+		public FightPerformance read() throws IOException
+		{
+			if (readByte() == 0) { return null; }
+
+			FightPerformance fight = new FightPerformance();
+			fight.lastFightTime = prevFightTime + unzigzag(readVarLong());
+			prevFightTime = fight.lastFightTime;
+			fight.fightType = readEnum(FightType.class);
+
+			// log entries of both fighters were based on the fight's time, as they happened right before it.
+			prevEntryTime = fight.lastFightTime;
+			prevEntryTick = 0;
+			fight.competitor = readFighter();
+			fight.opponent = readFighter();
+			return fight;
+		}
+
+		private Fighter readFighter() throws IOException
+		{
+			if (readByte() == 0) { return null; }
+
+			String name = readString();
+			int attackCount = readVarInt();
+			int offPraySuccessCount = readVarInt();
+			double deservedDamage = readDouble();
+			int damageDealt = readVarInt();
+			int totalMagicAttackCount = readVarInt();
+			int magicHitCount = readVarInt();
+			double magicHitCountDeserved = readDouble();
+			int offensivePraySuccessCount = readVarInt();
+			int ghostBarrageCount = readVarInt();
+			double ghostBarrageDeservedDamage = readDouble();
+			int hpHealed = readVarInt();
+			boolean dead = readByte() == 1;
+
+			ArrayList<FightLogEntry> entries;
+			FightLogStore.Page page = null;
+			if (version >= 3)
+			{
+				long offset = in.getCount();
+				entries = decodeFightLogEntries(readBlock(), enumNames);
+				if (snapshotStore != null && entries != null)
+				{
+					page = snapshotStore.pageOutToSnapshot(offset, name);
+				}
+			}
+			else
+			{
+				entries = readFightLogEntries();
+			}
+
+			return new Fighter(name, attackCount, offPraySuccessCount, deservedDamage, damageDealt,
+				totalMagicAttackCount, magicHitCount, magicHitCountDeserved, offensivePraySuccessCount,
+				ghostBarrageCount, ghostBarrageDeservedDamage, hpHealed, dead, entries, page);
+		}
+
+		private byte[] readBlock() throws IOException
+		{
+			int length = readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+			if (length < 0 || length > MAX_BLOCK_LENGTH)
+			{
+				throw new IOException("Invalid block length in binary fight history: " + length);
+			}
+
+			return readBytes(length);
+		}
+
+		private ArrayList<FightLogEntry> readFightLogEntries() throws IOException
+		{
+			int size = readVarInt() - 1;
+			if (size < 0) { return null; }
+
+			ArrayList<FightLogEntry> entries = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+			{
+				entries.add(readFightLogEntry());
+			}
+			return entries;
+		}
+
+		private FightLogEntry readFightLogEntry() throws IOException
+		{
+			int flags = readByte();
+
+			long time = prevEntryTime + unzigzag(readVarLong());
+			prevEntryTime = time;
+			int tick = prevEntryTick + (int)unzigzag(readVarInt() & 0xFFFFFFFFL);
+			prevEntryTick = tick;
+
+			int[] attackerGear = (flags & HAS_ATTACKER_GEAR) != 0 ? readGear() : null;
+			HeadIcon attackerOverhead = readEnum(HeadIcon.class);
+			AnimationData animationData = readEnum(AnimationData.class);
+			double deservedDamage = readDouble();
+			double accuracy = readDouble();
+			int maxHit = readZigzagInt();
+			int minHit = readZigzagInt();
+
+			CombatLevels attackerLevels = null;
+			if ((flags & HAS_ATTACKER_LEVELS) != 0)
+			{
+				attackerLevels = new CombatLevels(readZigzagInt(), readZigzagInt(), readZigzagInt(),
+					readZigzagInt(), readZigzagInt(), readZigzagInt());
+			}
+
+			int[] defenderGear = (flags & HAS_DEFENDER_GEAR) != 0 ? readGear() : null;
+			HeadIcon defenderOverhead = readEnum(HeadIcon.class);
+			int attackerOffensivePray = readZigzagInt();
+
+			return new FightLogEntry(time, tick, (flags & FULL_ENTRY) != 0, attackerGear, attackerOverhead,
+				animationData, deservedDamage, accuracy, maxHit, minHit, (flags & SPLASH) != 0, attackerLevels,
+				defenderGear, defenderOverhead, attackerOffensivePray);
+		}
+
+		private int[] readGear() throws IOException
+		{
+			// version 1 always wrote the complete gear.
+			if (version >= 2)
+			{
+				int id = readVarInt() - 1;
+				if (id >= 0)
+				{
+					if (id >= gears.size())
+					{
+						throw new IOException("Invalid gear id in binary fight history: " + id);
+					}
+					return gears.get(id);
+				}
+			}
+
+			int[] gear = new int[readVarInt()];
+			for (int i = 0; i < gear.length; i++)
+			{
+				gear[i] = readZigzagInt();
+			}
+			gear = GearDictionary.intern(gear);
+			gears.add(gear);
+			return gear;
+		}
+
+		// enum values that no longer exist are read as null, like the json deserializer does.
+		private <T extends Enum<T>> T readEnum(Class<T> type) throws IOException
+		{
+			int id = readVarInt() - 1;
+			if (id < 0) { return null; }
+
+			// versions before 3 wrote each enum's name after its id the first time it was used.
+			if (version < 3 && id == enumNames.size())
+			{
+				enumNames.add(readString());
+			}
+			else if (id >= enumNames.size())
+			{
+				throw new IOException("Invalid enum id in binary fight history: " + id);
+			}
+
+			try
+			{
+				return Enum.valueOf(type, enumNames.get(id));
+			}
+			catch (IllegalArgumentException e)
+			{
+				return null;
+			}
+		}
+
+		private double readDouble() throws IOException
+		{
+			// thousandths are exact integers, so this gives the same double as parsing its json form.
+			return unzigzag(readVarLong()) / 1000.0;
+		}
+
+		private String readString() throws IOException
+		{
+			int length = readVarInt() - 1;
+			if (length < 0) { return null; }
+
+			return new String(readBytes(length), StandardCharsets.UTF_8);
+		}
+
+		private byte[] readBytes(int length) throws IOException
+		{
+			byte[] bytes = new byte[length];
+			int read = 0;
+			while (read < length)
+			{
+				int n = in.read(bytes, read, length - read);
+				if (n < 0) { throw new EOFException(); }
+				read += n;
+			}
+			return bytes;
+		}
+
+		private int readZigzagInt() throws IOException
+		{
+			return (int)unzigzag(readVarInt() & 0xFFFFFFFFL);
+		}
+
+		private int readVarInt() throws IOException
+		{
+			return (int)readVarLong();
+		}
+
+		private long readVarLong() throws IOException
+		{
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7)
+			{
+				int b = readByte();
+				value |= (long)(b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+				{
+					return value;
+				}
+			}
+			throw new IOException("Invalid varint in binary fight history");
+		}
+
+		private int readByte() throws IOException
+		{
+			int b = in.read();
+			if (b < 0) { throw new EOFException(); }
+			return b;
+		}
+	}
+
+	// encode a single block of fight log entries with this version's enum table, used by the FightLogStore.
+	public static byte[] encodeFightLogEntries(List<FightLogEntry> entries) throws IOException
+	{
+		return encodeFightLogEntries(entries, ENUM_IDS);
+	}
+
+	private static byte[] encodeFightLogEntries(List<FightLogEntry> entries, Map<Enum<?>, Integer> enumIds)
+		throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new Writer(out, enumIds).writeFightLogEntries(entries);
+		return out.toByteArray();
+	}
+
+	// decode a single block of fight log entries, with the enum names read from the data it was written in,
+	// or this version's enum table if null.
+	public static ArrayList<FightLogEntry> decodeFightLogEntries(byte[] data, List<String> enumNames)
+		throws IOException
+	{
+		return new Reader(new ByteArrayInputStream(data), enumNames == null ? ENUM_NAMES : enumNames)
+			.readFightLogEntries();
+	}
+
+	// read the enum names from the header of binary fight history data.
+	public static List<String> readEnumNames(InputStream in) throws IOException
+	{
+		return new Reader(in).enumNames;
+	}
+
+	// map signed values to unsigned ones so small negative values stay small as varints.
+	private static long zigzag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static int zigzag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static long unzigzag(long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
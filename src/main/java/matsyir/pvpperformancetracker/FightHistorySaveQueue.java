@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import matsyir.pvpperformancetracker.controllers.FightPerformance;
+
+// Write-behind saving of the fight history. Changes are queued as they happen and written to the
+// FightHistoryStore on the executor at most FLUSH_DELAY_SECONDS later, so several changes in a row
+// (e.g. removing a few fights) only cause a single write. Only the latest full snapshot is kept, along with
+// any fights added after it, which are appended to the journal rather than rewriting everything.
+@Slf4j
+public class FightHistorySaveQueue
+{
+	private static final long FLUSH_DELAY_SECONDS = 5;
+
+	private final ScheduledExecutorService executor;
+	private final FightHistoryStore store;
+
+	// complete fight history to save, or null if only new fights need to be appended.
+	private List<FightPerformance> pendingFightHistory;
+	private boolean compactPendingFightHistory;
+	// fights added since the pending fight history was copied, or since the last flush.
+	private List<FightPerformance> pendingNewFights = new ArrayList<>();
+	private boolean flushScheduled;
+
+	public FightHistorySaveQueue(ScheduledExecutorService executor, FightHistoryStore store)
+	{
+		this.executor = executor;
+		this.store = store;
+	}
+
+	// queue a finished fight to be appended to the journal.
+	public synchronized void queueNewFight(FightPerformance fight)
+	{
+		pendingNewFights.add(fight);
+		scheduleFlush();
+	}
+
+	// queue a rewrite of the complete fight history. The list should be a copy, as it is written later on the
+	// executor. It replaces any fight history or new fights queued before, as they're all contained in it.
+	public synchronized void queueFightHistory(List<FightPerformance> fights, boolean compact)
+	{
+		pendingFightHistory = fights;
+		compactPendingFightHistory = compact;
+		pendingNewFights = new ArrayList<>();
+		scheduleFlush();
+	}
+
+	private void scheduleFlush()
+	{
+		if (flushScheduled) { return; }
+
+		flushScheduled = true;
+		executor.schedule(this::flush, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+	}
+
+	// write everything queued so far. Normally run on the executor by the scheduled flush,
+	// but can be submitted early to make sure everything is saved, e.g. on shutdown.
+	public void flush()
+	{
+		final List<FightPerformance> fights;
+		final boolean compact;
+		final List<FightPerformance> newFights;
+		synchronized (this)
+		{
+			fights = pendingFightHistory;
+			compact = compactPendingFightHistory;
+			newFights = pendingNewFights;
+			pendingFightHistory = null;
+			pendingNewFights = new ArrayList<>();
+			flushScheduled = false;
+		}
+
+		// silently ignore errors, which shouldn't really happen - but if they do, don't prevent the plugin
+		// from continuing to work, even if there are issues saving the data.
+		if (fights != null)
+		{
+			try
+			{
+				store.compact(fights, compact);
+			}
+			catch (Exception e)
+			{
+				log.warn("Error ignored while updating fight history data: " + e.getMessage());
+			}
+		}
+
+		for (FightPerformance fight : newFights)
+		{
+			try
+			{
+				store.append(fight);
+			}
+			catch (Exception e)
+			{
+				log.warn("Error ignored while saving fight to fight history journal: " + e.getMessage());
+			}
+		}
+	}
+}
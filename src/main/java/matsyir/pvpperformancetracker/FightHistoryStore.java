@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import matsyir.pvpperformancetracker.controllers.FightPerformance;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.GSON;
+
+// Saved fight history, stored as a snapshot (the complete json array of fights, same format as before,
+// or the same fights in the binary format of FightHistoryCodec if compactFightHistoryData is enabled)
+// along with an append-only journal holding one json fight per line. Finished fights are only appended
+// to the journal, so saving a fight costs one fight rather than the entire history. Once enough fights
+// were journaled, the whole history is compacted back into the snapshot and the journal is cleared.
+// Fight log entries loaded from a binary snapshot are paged out to the FightLogStore, to be read back from it.
+// A binary snapshot is never the only copy of the history until it was read back successfully: the json
+// snapshot, or the previous binary snapshot as a backup, is kept until then and loaded if it can't be read.
+@Slf4j
+public class FightHistoryStore
+{
+	public static final String FIGHT_HISTORY_JOURNAL_FNAME = "FightHistoryJournal.jsonl";
+	public static final String FIGHT_HISTORY_BINARY_DATA_FNAME = "FightHistoryData.bin";
+	public static final String FIGHT_HISTORY_BINARY_BACKUP_FNAME = "FightHistoryData.bin.bak";
+	// number of journaled fights after which the next save should compact everything into the snapshot.
+	private static final int COMPACTION_THRESHOLD = 100;
+
+	private final File snapshotFile;
+	private final File binarySnapshotFile;
+	private final File binaryBackupFile;
+	private final File journalFile;
+	private final FightLogStore fightLogStore;
+
+	// number of fights appended to the journal since the last compaction. Only written while holding
+	// the lock, but volatile so it can be checked without waiting on a load or compaction in progress.
+	@Getter
+	private volatile int journalSize;
+
+	public FightHistoryStore(File dataDir, FightLogStore fightLogStore)
+	{
+		this.fightLogStore = fightLogStore;
+		snapshotFile = new File(dataDir, PvpPerformanceTrackerPlugin.FIGHT_HISTORY_DATA_FNAME);
+		binarySnapshotFile = new File(dataDir, FIGHT_HISTORY_BINARY_DATA_FNAME);
+		binaryBackupFile = new File(dataDir, FIGHT_HISTORY_BINARY_BACKUP_FNAME);
+		journalFile = new File(dataDir, FIGHT_HISTORY_JOURNAL_FNAME);
+	}
+
+	// stream the snapshot followed by any journaled fights, deserializing them one at a time and handing
+	// them to the batchConsumer in batches of up to batchSize fights, in the order they were saved.
+	// Only one batch is held at a time. Fights are not sorted or trimmed here. If the binary snapshot can't be
+	// read, the fights read before the error are kept and the backup is loaded after them, so the same fights
+	// can be handed over twice.
+	public synchronized void load(int batchSize, Consumer<List<FightPerformance>> batchConsumer) throws IOException
+	{
+		FightBatch batch = new FightBatch(batchSize, batchConsumer);
+
+		// read whichever snapshot was written last: the json snapshot is kept as a backup when compacting
+		// into the binary format, until the binary snapshot was read back once.
+		if (binarySnapshotFile.exists() &&
+			(!snapshotFile.exists() || binarySnapshotFile.lastModified() >= snapshotFile.lastModified()))
+		{
+			try
+			{
+				loadBinarySnapshot(binarySnapshotFile, fightLogStore, batch);
+
+				// the binary snapshot can be read, so the backups aren't needed anymore.
+				Files.deleteIfExists(snapshotFile.toPath());
+				Files.deleteIfExists(binaryBackupFile.toPath());
+			}
+			catch (IOException | RuntimeException e)
+			{
+				log.warn("Error while reading binary fight history data, loading its backup: " + e.getMessage());
+				loadBackup(batch);
+			}
+		}
+		else
+		{
+			// if the fight history data file doesn't exist, create it with an empty array.
+			if (!snapshotFile.exists())
+			{
+				Writer writer = new FileWriter(snapshotFile);
+				writer.write("[]");
+				writer.close();
+			}
+
+			loadJsonSnapshot(batch);
+		}
+
+		journalSize = 0;
+		if (journalFile.exists())
+		{
+			try (BufferedReader reader = new BufferedReader(new FileReader(journalFile)))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					if (line.trim().isEmpty()) { continue; }
+
+					// a crash during an append can leave a partial last line: skip it rather than
+					// failing the whole load, as every other journaled fight is still valid.
+					try
+					{
+						FightPerformance fight = GSON.fromJson(line, FightPerformance.class);
+						if (fight == null) { continue; }
+
+						batch.add(fight);
+						journalSize++;
+					}
+					catch (JsonParseException e)
+					{
+						log.warn("Skipped invalid fight history journal entry: " + e.getMessage());
+					}
+				}
+			}
+		}
+
+		batch.flush();
+	}
+
+	// load the previous binary snapshot if it was kept, otherwise the json snapshot if it was kept.
+	private void loadBackup(FightBatch batch) throws IOException
+	{
+		if (binaryBackupFile.exists())
+		{
+			try
+			{
+				loadBinarySnapshot(binaryBackupFile, null, batch);
+				return;
+			}
+			catch (IOException | RuntimeException e)
+			{
+				log.warn("Error while reading binary fight history data backup: " + e.getMessage());
+			}
+		}
+
+		if (snapshotFile.exists())
+		{
+			loadJsonSnapshot(batch);
+		}
+	}
+
+	// fight log entries are only paged out to the snapshotStore if it is given, as it can only read them from
+	// the binary snapshot, not its backup.
+	private static void loadBinarySnapshot(File file, FightLogStore snapshotStore, FightBatch batch) throws IOException
+	{
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file)))
+		{
+			FightHistoryCodec.Reader reader = new FightHistoryCodec.Reader(in, snapshotStore);
+			FightPerformance fight;
+			while ((fight = reader.read()) != null)
+			{
+				batch.add(fight);
+			}
+		}
+	}
+
+	private void loadJsonSnapshot(FightBatch batch) throws IOException
+	{
+		try (JsonReader reader = GSON.newJsonReader(new BufferedReader(new FileReader(snapshotFile))))
+		{
+			reader.beginArray();
+			while (reader.hasNext())
+			{
+				FightPerformance fight = GSON.fromJson(reader, FightPerformance.class);
+				if (fight == null) { continue; }
+
+				batch.add(fight);
+			}
+			reader.endArray();
+		}
+	}
+
+	// the loaded fights not handed to the batchConsumer yet. Kept outside of each snapshot's loading so the fights
+	// read before an error are still handed over once, and a list is never added to after it was handed over.
+	private static class FightBatch
+	{
+		private final int batchSize;
+		private final Consumer<List<FightPerformance>> batchConsumer;
+		private List<FightPerformance> fights;
+
+		private FightBatch(int batchSize, Consumer<List<FightPerformance>> batchConsumer)
+		{
+			this.batchSize = batchSize;
+			this.batchConsumer = batchConsumer;
+			fights = new ArrayList<>(batchSize);
+		}
+
+		private void add(FightPerformance fight)
+		{
+			fights.add(fight);
+			if (fights.size() >= batchSize)
+			{
+				flush();
+			}
+		}
+
+		private void flush()
+		{
+			if (fights.isEmpty()) { return; }
+
+			// a new list, as the batchConsumer can keep the one it was given.
+			batchConsumer.accept(fights);
+			fights = new ArrayList<>(batchSize);
+		}
+	}
+
+	// append a single finished fight to the journal.
+	public synchronized void append(FightPerformance fight) throws IOException
+	{
+		try (Writer writer = new BufferedWriter(new FileWriter(journalFile, true)))
+		{
+			// default Gson output is always a single line, so the journal stays line-delimited.
+			writer.write(GSON.toJson(fight, FightPerformance.class));
+			writer.write('\n');
+		}
+		journalSize++;
+	}
+
+	public boolean isCompactionDue()
+	{
+		return journalSize >= COMPACTION_THRESHOLD;
+	}
+
+	// rewrite the complete fight history into the snapshot, in binary if the binary parameter is true
+	// or json otherwise, then clear the journal, since all of its fights are now contained in the snapshot.
+	// The snapshot is written to a temporary file first so a failed write can never leave a truncated
+	// snapshot behind. A binary snapshot keeps the json snapshot, or moves the previous binary snapshot
+	// to the backup file, see load(). A json snapshot deletes the binary snapshot and its backup.
+	public synchronized void compact(List<FightPerformance> fights, boolean binary) throws IOException
+	{
+		File targetFile = binary ? binarySnapshotFile : snapshotFile;
+		File tempFile = new File(targetFile.getParentFile(), targetFile.getName() + ".tmp");
+		Map<FightLogStore.Page, Long> pageOffsets = null;
+		if (binary)
+		{
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile)))
+			{
+				FightHistoryCodec.Writer writer = new FightHistoryCodec.Writer(out);
+				for (FightPerformance fight : fights)
+				{
+					writer.write(fight);
+				}
+				writer.finish();
+				pageOffsets = writer.getFightLogPageOffsets();
+			}
+		}
+		else
+		{
+			try (Writer writer = new BufferedWriter(new FileWriter(tempFile)))
+			{
+				GSON.toJson(fights.toArray(new FightPerformance[0]), FightPerformance[].class, writer);
+			}
+		}
+
+		if (binary)
+		{
+			// nothing to back up if the json snapshot is still kept, as the binary snapshot was never read back yet.
+			boolean backup = binarySnapshotFile.exists() && !snapshotFile.exists();
+			// fight log entries paged out to the binary snapshot are read from the new one from now on.
+			fightLogStore.replaceSnapshot(tempFile, pageOffsets, backup ? binaryBackupFile : null);
+		}
+		else
+		{
+			moveFile(tempFile, targetFile);
+			fightLogStore.releaseSnapshot();
+			Files.deleteIfExists(binarySnapshotFile.toPath());
+			Files.deleteIfExists(binaryBackupFile.toPath());
+		}
+		Files.deleteIfExists(journalFile.toPath());
+		journalSize = 0;
+	}
+
+	static void moveFile(File source, File target) throws IOException
+	{
+		try
+		{
+			Files.move(source.toPath(), target.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import lombok.extern.slf4j.Slf4j;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+
+// Holds the fight log entries of finished fights, so each Fighter in the fight history only has to keep its summary
+// stats in memory. Each Fighter's entries are a Page, kept in memory until the least recently used pages are evicted
+// once more than maxResidentEntries are in memory, then read back by offset whenever a fight's details are viewed
+// or it is analyzed. Pages loaded from the binary fight history snapshot are read back from the snapshot itself.
+// Other pages are only written when they're first evicted, to a page file for the current session, length-prefixed
+// and binary encoded with FightHistoryCodec.
+@Slf4j
+public class FightLogStore
+{
+	private static final int MAX_RESIDENT_ENTRIES = 20000;
+
+	// a Fighter's paged out fight log entries. Only accessed while holding the FightLogStore's lock.
+	public static class Page
+	{
+		private final String attackerName; // attacker names aren't stored, so they're set again when read back.
+		private ArrayList<FightLogEntry> entries; // null if not in memory
+		private long offset = -1; // -1 if not written anywhere yet
+		private boolean inSnapshot; // true if written in the binary snapshot, otherwise in the page file
+
+		private Page(String attackerName)
+		{
+			this.attackerName = attackerName;
+		}
+	}
+
+	private final File snapshotFile;
+	private final File pageFileDir; // null for the default temporary-file directory
+	private final int maxResidentEntries;
+	private RandomAccessFile snapshot;
+	private List<String> snapshotEnumNames;
+	// pages read from the snapshot, to move them elsewhere before the snapshot is replaced or deleted.
+	private final Set<Page> snapshotPages = Collections.newSetFromMap(new WeakHashMap<>());
+	private File pageFile;
+	private RandomAccessFile pages;
+	// pages with their entries in memory, least recently used first.
+	private final LinkedHashMap<Page, Page> residentPages = new LinkedHashMap<>(16, 0.75f, true);
+	private int residentEntries;
+
+	public FightLogStore(File snapshotFile)
+	{
+		this(snapshotFile, null, MAX_RESIDENT_ENTRIES);
+	}
+
+	FightLogStore(File snapshotFile, File pageFileDir, int maxResidentEntries)
+	{
+		this.snapshotFile = snapshotFile;
+		this.pageFileDir = pageFileDir;
+		this.maxResidentEntries = maxResidentEntries;
+	}
+
+	// page out entries that aren't written anywhere yet. They stay in memory until evicted.
+	public synchronized Page pageOut(ArrayList<FightLogEntry> entries, String attackerName)
+	{
+		Page page = new Page(attackerName);
+		page.entries = entries;
+		makeResident(page);
+		return page;
+	}
+
+	// page out entries that can be read back from the snapshot at the given offset. They're not kept in memory.
+	public synchronized Page pageOutToSnapshot(long offset, String attackerName)
+	{
+		Page page = new Page(attackerName);
+		page.offset = offset;
+		page.inSnapshot = true;
+		snapshotPages.add(page);
+		return page;
+	}
+
+	// write the entries to the page file right away, without keeping them in memory.
+	public synchronized Page write(ArrayList<FightLogEntry> entries, String attackerName) throws IOException
+	{
+		Page page = new Page(attackerName);
+		page.offset = writeToPageFile(entries);
+		return page;
+	}
+
+	public synchronized ArrayList<FightLogEntry> read(Page page) throws IOException
+	{
+		if (page.entries != null)
+		{
+			residentPages.get(page); // to mark it as recently used
+			return page.entries;
+		}
+
+		ArrayList<FightLogEntry> entries = page.inSnapshot ? readFromSnapshot(page.offset) : readFromPageFile(page.offset);
+		if (entries != null)
+		{
+			entries.forEach((FightLogEntry l) -> l.attackerName = page.attackerName);
+		}
+		page.entries = entries;
+		makeResident(page);
+		return entries;
+	}
+
+	// replace the snapshot by the newSnapshot file, in which the pageOffsets' pages were written at their offsets.
+	// Other pages read from the current snapshot are moved to the page file first. If a backupFile is given,
+	// the current snapshot is moved to it rather than replaced.
+	synchronized void replaceSnapshot(File newSnapshot, Map<Page, Long> pageOffsets, File backupFile)
+		throws IOException
+	{
+		for (Page page : new ArrayList<>(snapshotPages))
+		{
+			if (!pageOffsets.containsKey(page))
+			{
+				moveToPageFile(page);
+			}
+		}
+		closeSnapshot();
+
+		if (backupFile != null)
+		{
+			FightHistoryStore.moveFile(snapshotFile, backupFile);
+		}
+		FightHistoryStore.moveFile(newSnapshot, snapshotFile);
+
+		snapshotPages.clear();
+		pageOffsets.forEach((Page page, Long offset) ->
+		{
+			page.offset = offset;
+			page.inSnapshot = true;
+			snapshotPages.add(page);
+		});
+	}
+
+	// move every page read from the snapshot to the page file, so the snapshot can be deleted.
+	synchronized void releaseSnapshot() throws IOException
+	{
+		for (Page page : new ArrayList<>(snapshotPages))
+		{
+			moveToPageFile(page);
+		}
+		snapshotPages.clear();
+		closeSnapshot();
+	}
+
+	private void moveToPageFile(Page page) throws IOException
+	{
+		if (page.entries == null)
+		{
+			page.offset = writeToPageFile(readFromSnapshot(page.offset));
+		}
+		else
+		{
+			// resident pages are written once evicted, like any other page.
+			page.offset = -1;
+		}
+		page.inSnapshot = false;
+	}
+
+	private void makeResident(Page page)
+	{
+		if (page.entries == null) { return; }
+
+		residentPages.put(page, page);
+		residentEntries += page.entries.size();
+
+		// evict the least recently used pages other than this one. A page that can't be written to the page file
+		// stays in memory and counted, and no other unwritten page is written until the next page is made resident.
+		boolean canWrite = true;
+		Iterator<Page> iterator = residentPages.keySet().iterator();
+		while (residentEntries > maxResidentEntries && iterator.hasNext())
+		{
+			Page eldest = iterator.next();
+			if (eldest == page) { continue; }
+
+			if (eldest.offset < 0)
+			{
+				if (!canWrite) { continue; }
+
+				try
+				{
+					eldest.offset = writeToPageFile(eldest.entries);
+				}
+				catch (IOException e)
+				{
+					log.warn("Error ignored while writing fight log entries to page file: " + e.getMessage());
+					canWrite = false;
+					continue;
+				}
+			}
+			iterator.remove();
+			residentEntries -= eldest.entries.size();
+			eldest.entries = null;
+		}
+	}
+
+	synchronized int getResidentEntryCount()
+	{
+		return residentEntries;
+	}
+
+	private long writeToPageFile(List<FightLogEntry> entries) throws IOException
+	{
+		if (pages == null)
+		{
+			pageFile = File.createTempFile("pvp-performance-tracker-fight-logs", ".tmp", pageFileDir);
+			pageFile.deleteOnExit();
+			pages = new RandomAccessFile(pageFile, "rw");
+		}
+
+		byte[] data = FightHistoryCodec.encodeFightLogEntries(entries);
+		long offset = pages.length();
+		pages.seek(offset);
+		pages.writeInt(data.length);
+		pages.write(data);
+		return offset;
+	}
+
+	private ArrayList<FightLogEntry> readFromPageFile(long offset) throws IOException
+	{
+		if (pages == null) { throw new IOException("Fight log page file is not open"); }
+
+		return FightHistoryCodec.decodeFightLogEntries(readBlock(pages, offset), null);
+	}
+
+	private ArrayList<FightLogEntry> readFromSnapshot(long offset) throws IOException
+	{
+		if (snapshot == null)
+		{
+			// the snapshot's enums are written in its header, as it may have been written by another version.
+			try (InputStream in = new BufferedInputStream(new FileInputStream(snapshotFile)))
+			{
+				snapshotEnumNames = FightHistoryCodec.readEnumNames(in);
+			}
+			snapshot = new RandomAccessFile(snapshotFile, "r");
+		}
+
+		return FightHistoryCodec.decodeFightLogEntries(readBlock(snapshot, offset), snapshotEnumNames);
+	}
+
+	private static byte[] readBlock(RandomAccessFile file, long offset) throws IOException
+	{
+		file.seek(offset);
+		byte[] data = new byte[file.readInt()];
+		file.readFully(data);
+		return data;
+	}
+
+	private void closeSnapshot()
+	{
+		if (snapshot == null) { return; }
+
+		try
+		{
+			snapshot.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Error ignored while closing fight history snapshot: " + e.getMessage());
+		}
+		snapshot = null;
+		snapshotEnumNames = null;
+	}
+
+	public synchronized void close()
+	{
+		closeSnapshot();
+		residentPages.clear();
+		residentEntries = 0;
+		if (pages == null) { return; }
+
+		try
+		{
+			pages.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Error ignored while closing fight log store: " + e.getMessage());
+		}
+		pageFile.delete();
+		pages = null;
+		pageFile = null;
+	}
+}
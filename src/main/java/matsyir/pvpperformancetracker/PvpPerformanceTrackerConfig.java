@@ -398,6 +398,18 @@ public interface PvpPerformanceTrackerConfig extends Config
 		return 10000;
 	}
 
+	@ConfigItem(
+		keyName = "compactFightHistoryData",
+		name = "Compact Saved Fights",
+		description = "Save the fight history to a compact binary file (FightHistoryData.bin) rather than json." +
+			"<br>Much smaller and faster to load. Copying/importing fight data still uses json.",
+		position = 215
+	)
+	default boolean compactFightHistoryData()
+	{
+		return false;
+	}
+
 	@ConfigItem(
 		keyName = "exactNameFilter",
 		name = "Exact Name Filter",
@@ -47,6 +47,8 @@ public class PvpPerformanceTrackerOverlay extends Overlay
 	private final PvpPerformanceTrackerPlugin plugin;
 	private final PvpPerformanceTrackerConfig config;
 
+	private FightPerformance shownFight; // fight whose names are currently set on the first line
+
 	private TitleComponent overlayTitle;
 
 	// The main overlay is like the panel, each line is optionally turned off.
@@ -104,6 +106,12 @@ public class PvpPerformanceTrackerOverlay extends Overlay
 			return null;
 		}
 
+		// several fights can be tracked at once, so update the names whenever the shown fight changes.
+		if (fight != shownFight)
+		{
+			setFight(fight);
+		}
+
 		// Second line: off-pray hit success stats
 		overlaySecondLine.setLeft(fight.getCompetitor().getOffPrayStats(true));
 		overlaySecondLine.setLeftColor(fight.competitorOffPraySuccessIsGreater() ? Color.GREEN : Color.WHITE);
@@ -190,6 +198,7 @@ public class PvpPerformanceTrackerOverlay extends Overlay
 
 	void setFight(FightPerformance fight)
 	{
+		shownFight = fight;
 		String cName = fight.getCompetitor().getName();
 		overlayFirstLine.setLeft(cName.substring(0, Math.min(6, cName.length())));
 		String oName = fight.getOpponent().getName();
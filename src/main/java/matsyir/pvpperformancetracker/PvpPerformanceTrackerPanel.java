@@ -172,7 +172,7 @@ class PvpPerformanceTrackerPanel extends PluginPanel
 			if (fights.size() > config.fightHistoryRenderLimit())
 			{
 				int numFightsToRemove = fights.size() - config.fightHistoryRenderLimit();
-				fights.removeIf((FightPerformance f) -> fights.indexOf(f) < numFightsToRemove);
+				fights.subList(0, numFightsToRemove).clear();
 				fightHistoryContainer.removeAll();
 			}
 			// if we're adding a normal number of fights, then check if we actually need to remove existing fights to make room for it.
@@ -25,40 +25,63 @@
 package matsyir.pvpperformancetracker;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CountingInputStream;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.Provides;
 import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.swing.ImageIcon;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
 import javax.swing.SwingUtilities;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import matsyir.pvpperformancetracker.controllers.BatchFightAnalysis;
 import matsyir.pvpperformancetracker.controllers.FightPerformance;
+import matsyir.pvpperformancetracker.controllers.FightRegistry;
+import matsyir.pvpperformancetracker.controllers.FightSimulator;
+import matsyir.pvpperformancetracker.controllers.Fighter;
 import matsyir.pvpperformancetracker.models.CombatLevels;
+import matsyir.pvpperformancetracker.models.ConfigSnapshot;
 import matsyir.pvpperformancetracker.models.FightLogEntry;
 import matsyir.pvpperformancetracker.models.RangeAmmoData;
 import matsyir.pvpperformancetracker.models.oldVersions.FightPerformance__1_5_5;
@@ -75,6 +98,7 @@ import net.runelite.api.SpriteID;
 import net.runelite.api.events.AnimationChanged;
 import net.runelite.api.events.FakeXpDrop;
 import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
 import net.runelite.api.events.HitsplatApplied;
 import net.runelite.api.events.InteractingChanged;
 import net.runelite.api.events.StatChanged;
@@ -110,7 +134,12 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	public static final String DATA_FOLDER = "pvp-performance-tracker";
 	public static final String FIGHT_HISTORY_DATA_FNAME = "FightHistoryData.json";
 	public static final File FIGHT_HISTORY_DATA_DIR;
+	private static final int FIGHT_HISTORY_LOAD_BATCH_SIZE = 100; // number of saved fights added to the panel at once
+	private static final long FIGHT_HISTORY_RECALCULATION_DELAY_MS = 1000; // wait for further config changes before recalculating
 	public static PvpPerformanceTrackerConfig CONFIG;
+	// config values used by the damage calculations, see onConfigChanged. Volatile since it is replaced on the
+	// client thread but read by damage calculations running on other threads.
+	public static volatile ConfigSnapshot CONFIG_SNAPSHOT;
 	public static PvpPerformanceTrackerPlugin PLUGIN;
 	public static Image PLUGIN_ICON;
 	public static AsyncBufferedImage DEFAULT_NONE_SYMBOL; // save bank filler image to display a generic "None" or N/A state.
@@ -177,9 +206,31 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	private Gson injectedGson;
 
 	// custom fields/props
-	public ArrayList<FightPerformance> fightHistory;
+	// oldest fights first. A deque so fights can be appended and the oldest evicted without shifting the rest.
+	public ArrayDeque<FightPerformance> fightHistory;
+	// content hashes of every fight in the fightHistory, to skip fights that are already in it when importing.
+	private Set<Long> fightHistoryHashes;
+	private FightHistoryStore fightHistoryStore;
+	private FightHistorySaveQueue fightHistorySaveQueue;
 	@Getter
-	private FightPerformance currentFight;
+	private FightLogStore fightLogStore;
+	// true while the saved fight history is being loaded in the background, see importFightHistoryData()
+	private volatile boolean fightHistoryLoading;
+	// set if the complete fight history should be saved once loading is done, as saving it
+	// while loading would only save the part of it that was loaded so far.
+	private boolean saveAfterFightHistoryLoad;
+	// set if the fight history should be recalculated once loading is done, see recalculateFightHistory()
+	private boolean recalculateAfterFightHistoryLoad;
+	// incremented for every requested recalculation, so outdated ones stop early and don't apply their results.
+	private final AtomicInteger fightHistoryRecalculation = new AtomicInteger();
+	// fights currently being tracked, one per opponent.
+	private final FightRegistry fightRegistry = new FightRegistry();
+	// events of the current fights buffered during each game tick, to be processed together in onGameTick: the
+	// fighters whose animation changed (in the order they did, each only once), and whether the competitor's hp
+	// changed or a ghost barrage check is due.
+	private final Set<Player> tickAnimatedFighters = new LinkedHashSet<>();
+	private boolean tickCompetitorHpChanged;
+	private boolean tickGhostBarrageCheck;
 	private Map<Integer, ImageIcon> spriteCache; // sprite cache since a small amount of sprites is re-used a lot
 	// do not cache items in the same way since we could potentially cache a very large amount of them.
 
@@ -198,10 +249,17 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	{
 		CONFIG = config; // save static instances of config/plugin to easily use in
 		PLUGIN = this;   // other contexts without passing them all the way down or injecting
-		fightHistory = new ArrayList<>();
+		CONFIG_SNAPSHOT = new ConfigSnapshot(config);
+		fightHistory = new ArrayDeque<>();
+		fightHistoryHashes = new HashSet<>();
+		fightLogStore = new FightLogStore(
+			new File(FIGHT_HISTORY_DATA_DIR, FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME));
+		fightHistoryStore = new FightHistoryStore(FIGHT_HISTORY_DATA_DIR, fightLogStore);
+		fightHistorySaveQueue = new FightHistorySaveQueue(executor, fightHistoryStore);
 
 		GSON = injectedGson.newBuilder()
 			.excludeFieldsWithoutExposeAnnotation()
+			.registerTypeAdapterFactory(Fighter.PAGED_FIGHT_LOG_ADAPTER_FACTORY)
 			.registerTypeAdapter(Double.class, (JsonSerializer<Double>) (value, theType, context) ->
 				value.isNaN() ? new JsonPrimitive(0) // Convert NaN to zero, otherwise, return as BigDecimal with scale of 3.
 					: new JsonPrimitive(BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_UP))
@@ -243,10 +301,13 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	@Override
 	protected void shutDown() throws Exception
 	{
-		saveFightHistoryData();
-
 		clientToolbar.removeNavigation(navButton);
 		overlayManager.remove(overlay);
+
+		// write any queued fight history changes now, then close the fight log store after them.
+		final FightLogStore store = fightLogStore;
+		executor.execute(fightHistorySaveQueue::flush);
+		executor.execute(store::close);
 	}
 
 	@Subscribe
@@ -254,6 +315,9 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	{
 		if (!event.getGroup().equals(CONFIG_KEY)) { return; }
 
+		// take a new snapshot before anything below uses it, e.g. recalculating the fight history.
+		CONFIG_SNAPSHOT = new ConfigSnapshot(config);
+
 		switch(event.getKey())
 		{
 			// if a user enables the panel or restricts/unrestricts the location to LMS, hide/show the panel accordingly
@@ -287,18 +351,28 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 			// If the user updates the fight history limit, remove fights as necessary
 			case "fightHistoryLimit":
 			case "fightHistoryRenderLimit":
-				if (config.fightHistoryLimit() > 0 && fightHistory.size() > config.fightHistoryLimit())
-				{
-					int numToRemove = fightHistory.size() - config.fightHistoryLimit();
-					// Remove oldest fightHistory until the size is smaller than the limit.
-					// Should only remove one fight in most cases.
-					fightHistory.removeIf((FightPerformance f) -> fightHistory.indexOf(f) < numToRemove);
-				}
+				trimFightHistory();
 				panel.rebuild();
 				break;
 			case "exactNameFilter":
 				panel.rebuild();
 				break;
+			// rewrite the saved fight history in the newly selected format
+			case "compactFightHistoryData":
+				saveFightHistoryDataAsync();
+				break;
+			// the deserved damage of saved fights depends on these, so recalculate them with the new settings
+			case "ringChoice":
+			case "boltChoice":
+			case "strongBoltChoice":
+			case "bpDartChoice":
+			case "attackLevel":
+			case "strengthLevel":
+			case "defenceLevel":
+			case "rangedLevel":
+			case "magicLevel":
+				recalculateFightHistory();
+				break;
 			case "settingsConfigured":
 				boolean enableConfigWarning = !config.settingsConfigured();
 				panel.setConfigWarning(enableConfigWarning);
@@ -349,11 +423,8 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 
 		stopFightIfOver();
 
-		// if the client player already has a valid opponent,
-		// or the event source/target aren't players, skip any processing.
-		if ((hasOpponent() && currentFight.fightStarted())
-			|| !(event.getSource() instanceof Player)
-			|| !(event.getTarget() instanceof Player))
+		// if the event source/target aren't players, skip any processing.
+		if (!(event.getSource() instanceof Player) || !(event.getTarget() instanceof Player))
 		{
 			return;
 		}
@@ -374,11 +445,11 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 			return;
 		}
 
-		// start a new fight with the new found opponent, if a new one.
-		if (!hasOpponent() || !currentFight.getOpponent().getName().equals(opponent.getName()))
+		// start a new fight with the new found opponent, if a new one. Fights against other opponents are kept,
+		// as several opponents can be fought at once in multi-combat.
+		if (opponent.getName() != null)
 		{
-			currentFight = new FightPerformance(client.getLocalPlayer(), (Player)opponent);
-			overlay.setFight(currentFight);
+			fightRegistry.startFight(client.getLocalPlayer(), (Player)opponent);
 		}
 	}
 
@@ -414,18 +485,64 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 
 	@Subscribe
 	public void onAnimationChanged(AnimationChanged event)
+	{
+		// only buffer the fighters' animations, they are processed in onGameTick. This also delays the animation
+		// processing until equipment updates were loaded, since we will also want to use equipment data for
+		// deserved damage, and equipment updates are loaded after the animation updates.
+		if (!hasOpponent() || !(event.getActor() instanceof Player)) { return; }
+
+		Player player = (Player) event.getActor();
+		if (fightRegistry.getFightFor(player, client.getLocalPlayer()) != null)
+		{
+			tickAnimatedFighters.add(player);
+		}
+	}
+
+	// process the current fights' events of the tick all at once, using a single snapshot of the competitor's levels.
+	@Subscribe
+	public void onGameTick(GameTick event)
 	{
 		stopFightIfOver();
+		if (!hasOpponent())
+		{
+			clearTickEvents();
+			return;
+		}
 
-		// delay the animation processing, since we will also want to use equipment data for deserved
-		// damage, and equipment updates are loaded after the animation updates.
-		clientThread.invokeLater(() ->
+		Player localPlayer = client.getLocalPlayer();
+		CombatLevels competitorLevels = tickAnimatedFighters.isEmpty() && !tickGhostBarrageCheck ? null : new CombatLevels(client);
+		for (Player player : tickAnimatedFighters)
 		{
-			if (hasOpponent() && event.getActor() instanceof Player && event.getActor().getName() != null)
+			if (player.getName() != null)
 			{
-				currentFight.checkForAttackAnimations((Player)event.getActor(), new CombatLevels(client));
+				fightRegistry.checkForAttackAnimations(player, localPlayer, competitorLevels);
 			}
-		});
+		}
+
+		// hp healed counts towards every fight in progress, since they are all affected by it.
+		if (tickCompetitorHpChanged)
+		{
+			int currentHp = client.getBoostedSkillLevel(Skill.HITPOINTS);
+			for (FightPerformance fight : fightRegistry.getFights())
+			{
+				fight.updateCompetitorHp(currentHp);
+			}
+		}
+
+		if (tickGhostBarrageCheck && localPlayer != null)
+		{
+			FightPerformance fight = fightRegistry.getFightFor(localPlayer, localPlayer);
+			(fight != null ? fight : fightRegistry.getCurrentFight()).checkForLocalGhostBarrage(competitorLevels, localPlayer);
+		}
+
+		clearTickEvents();
+	}
+
+	private void clearTickEvents()
+	{
+		tickAnimatedFighters.clear();
+		tickCompetitorHpChanged = false;
+		tickGhostBarrageCheck = false;
 	}
 
 	@Subscribe
@@ -434,9 +551,9 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	{
 		int hitType = event.getHitsplat().getHitsplatType();
 
-		// if there's no opponent, the target is not a player, or the hitsplat is not relevant to pvp damage,
-		// skip the hitsplat. Otherwise, add it to the fight, which will only include it if it is one of the
-		// Fighters in the fight being hit.
+		// if there's no opponent, the target is not one of the fighters, or the hitsplat is not relevant to pvp
+		// damage, skip the hitsplat. Otherwise, add it to the fight right away rather than buffering it until
+		// the game tick, so it can't be attributed to a different fight if the current one ends during the tick.
 		if (!hasOpponent() || !(event.getActor() instanceof Player) ||
 			!(hitType == HitsplatID.DAMAGE_ME || hitType == HitsplatID.DAMAGE_ME_ORANGE || hitType == HitsplatID.DAMAGE_OTHER_ORANGE || hitType == HitsplatID.DAMAGE_OTHER || hitType == HitsplatID.DAMAGE_MAX_ME || hitType == HitsplatID.DAMAGE_MAX_ME_ORANGE ||
 				hitType == HitsplatID.POISON || hitType == HitsplatID.VENOM))
@@ -444,7 +561,11 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 			return;
 		}
 
-		currentFight.addDamageDealt(event.getActor().getName(), event.getHitsplat().getAmount());
+		FightPerformance fight = fightRegistry.getFightForHitsplat((Player) event.getActor(), client.getLocalPlayer());
+		if (fight != null)
+		{
+			fight.addDamageDealt(event.getActor().getName(), event.getHitsplat().getAmount());
+		}
 	}
 
 	@Subscribe
@@ -456,16 +577,18 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 
 		if (skill == Skill.HITPOINTS)
 		{
-			currentFight.updateCompetitorHp(client.getBoostedSkillLevel(Skill.HITPOINTS));
+			tickCompetitorHpChanged = true;
 		}
 
 		if (skill == Skill.MAGIC)
 		{
 			int magicXp = client.getSkillExperience(Skill.MAGIC);
-			if (magicXp > currentFight.competitor.getLastGhostBarrageCheckedMageXp())
+			// all fights share the competitor's magic xp, so the last checked xp is kept on the overlay's fight.
+			Fighter competitor = fightRegistry.getCurrentFight().getCompetitor();
+			if (magicXp > competitor.getLastGhostBarrageCheckedMageXp())
 			{
-				currentFight.competitor.setLastGhostBarrageCheckedMageXp(PLUGIN.getClient().getSkillExperience(Skill.MAGIC));
-				clientThread.invokeLater(this::checkForGhostBarrage);
+				competitor.setLastGhostBarrageCheckedMageXp(PLUGIN.getClient().getSkillExperience(Skill.MAGIC));
+				tickGhostBarrageCheck = true;
 			}
 		}
 	}
@@ -476,17 +599,10 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	{
 		if (!hasOpponent() || fakeXpDrop.getSkill() != Skill.MAGIC) { return; }
 
-		clientThread.invokeLater(this::checkForGhostBarrage);
-	}
-
-	// if the player gained magic xp but doesn't have a magic-attack animation, consider it as a ghost barrage.
-	// however this won't be added as a normal attack, it is for an extra ghost-barrage statistic as
-	// we can only detect this for the local player
-	private void checkForGhostBarrage()
-	{
-		if (!hasOpponent()) { return; }
-
-		currentFight.checkForLocalGhostBarrage(new CombatLevels(client), client.getLocalPlayer());
+		// if the player gained magic xp but doesn't have a magic-attack animation, consider it as a ghost barrage.
+		// however this won't be added as a normal attack, it is for an extra ghost-barrage statistic as
+		// we can only detect this for the local player. Checked in onGameTick.
+		tickGhostBarrageCheck = true;
 	}
 
 	// When the config is reset, also reset the fight history data, as a way to restart
@@ -498,11 +614,12 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 		resetFightHistory();
 	}
 
-	// when the client shuts down, save the fight history data locally.
+	// when the client shuts down, write any fight history changes that are still queued, after
+	// any writes already in progress since the executor runs tasks in order.
 	@Subscribe
 	public void onClientShutdown(ClientShutdown event)
 	{
-		event.waitFor(executor.submit(this::saveFightHistoryData));
+		event.waitFor(executor.submit(fightHistorySaveQueue::flush));
 	}
 
 	// #################################################################################################################
@@ -554,11 +671,12 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 			}
 
 			fightHistory.clear();
+			fightHistoryHashes.clear();
 
 			// read the old saved fights from the file into an array, and add them as an updated
 			// fight to the fightHistory list.
 			Arrays.asList(GSON.fromJson(new FileReader(fightHistoryData), FightPerformance__1_5_5[].class))
-				.forEach((oldFight) -> fightHistory.add(new FightPerformance(oldFight)));
+				.forEach((oldFight) -> addFightToHistory(new FightPerformance(oldFight)));
 
 			// now that the fights were deserialized and updated to the newest version, simply save them.
 			// afterwards, they will be re-loaded normally. Bit inefficient but not a big deal
@@ -571,37 +689,36 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 			// Display no modal for this error since it could happen on client load and that has odd behavior.
 		}
 	}
-	// Returns true if the player has an opponent.
+	// Returns true if the player has at least one opponent.
 	private boolean hasOpponent()
 	{
-		return currentFight != null;
+		return !fightRegistry.isEmpty();
 	}
 
+	// the fight currently shown on the overlay, i.e. the one with the most recent attack, or null if there is none.
+	public FightPerformance getCurrentFight()
+	{
+		return fightRegistry.getCurrentFight();
+	}
+
+	// stop each fight that is over, adding it to fight history if it actually started
 	private void stopFightIfOver()
 	{
-		if (hasOpponent() && currentFight.isFightOver())
+		if (hasOpponent())
 		{
-			// add fight to fight history if it actually started
-			if (currentFight.fightStarted())
-			{
-				addToFightHistory(currentFight);
-			}
-			currentFight = null;
+			fightRegistry.stopFightsIfOver(this::addToFightHistory);
 		}
 	}
 
 	// save the currently loaded fightHistory to the local json data so it is saved for the next client launch.
+	// this rewrites the complete history right away, compacting any journaled fights into the saved snapshot.
 	private void saveFightHistoryData()
 	{
 		// silently ignore errors, which shouldn't really happen - but if they do, don't prevent the plugin
 		// from continuing to work, even if there are issues saving the data.
 		try
 		{
-			File fightHistoryData = new File(FIGHT_HISTORY_DATA_DIR, FIGHT_HISTORY_DATA_FNAME);
-			Writer writer = new FileWriter(fightHistoryData);
-			GSON.toJson(fightHistory, writer);
-			writer.flush();
-			writer.close();
+			fightHistoryStore.compact(new ArrayList<>(fightHistory), config.compactFightHistoryData());
 		}
 		catch (Exception e)
 		{
@@ -609,20 +726,54 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 		}
 	}
 
+	// queue a save of the complete fight history, written in the background by the fightHistorySaveQueue.
+	// The history is copied on the calling thread so it can keep being modified while the copy is written.
+	private void saveFightHistoryDataAsync()
+	{
+		if (fightHistoryLoading)
+		{
+			saveAfterFightHistoryLoad = true;
+			return;
+		}
+
+		fightHistorySaveQueue.queueFightHistory(new ArrayList<>(fightHistory), config.compactFightHistoryData());
+	}
+
+	// queue a single new fight to be appended to the fight history journal, or a save of the complete
+	// history instead once enough fights were journaled since the last compaction.
+	private void saveNewFight(FightPerformance fight)
+	{
+		if (fightHistoryStore.isCompactionDue())
+		{
+			saveFightHistoryDataAsync();
+			return;
+		}
+
+		fightHistorySaveQueue.queueNewFight(fight);
+	}
+
+	// page out a finished fight's log entries to the fight log store, since they are only needed again
+	// when viewing the fight's details or analyzing it. Should be run on the executor.
+	private void pageOutFightLogs(FightPerformance fight)
+	{
+		if (fight.getCompetitor() == null || fight.getOpponent() == null) { return; }
+
+		fight.getCompetitor().pageOutFightLogEntries(fightLogStore);
+		fight.getOpponent().pageOutFightLogEntries(fightLogStore);
+	}
+
 	// add fight to loaded fight history
 	void addToFightHistory(FightPerformance fight)
 	{
-		if (fight == null) { return; }
-		fightHistory.add(fight);
+		if (fight == null || !addFightToHistory(fight)) { return; }
 		// no need to sort, since they sort chronologically, but they should automatically be added that way.
+		// fights removed by the limit below can stay in the journal, as it is also applied when loading.
+		saveNewFight(fight);
+		executor.execute(() -> pageOutFightLogs(fight));
 
 		// remove fights as necessary to respect the fightHistoryLimit.
-		if (config.fightHistoryLimit() > 0 && fightHistory.size() > config.fightHistoryLimit())
+		if (trimFightHistory())
 		{
-			int numToRemove = fightHistory.size() - config.fightHistoryLimit();
-			// Remove oldest fightHistory until the size is equal to the limit.
-			// Should only remove one fight in most cases.
-			fightHistory.removeIf((FightPerformance f) -> fightHistory.indexOf(f) < numToRemove);
 			panel.rebuild();
 		}
 		else
@@ -632,41 +783,170 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 	}
 
 	// import complete fight history data from the saved json data file
-	// this function only handles the direct file processing and json deserialization.
-	// more specific FightPerformance processing is done in importFights()
+	// the saved fights are streamed on the executor, and added to the fight history in batches on the client
+	// thread as they're deserialized. Saved fights are oldest first, so the panel is only rendered once every
+	// fight was added, see finishFightHistoryLoad().
 	void importFightHistoryData()
 	{
-		// catch and ignore any errors we may have forgotten to handle - the import will fail but at least the plugin
-		// will continue to function. This should only happen if their fight history data is corrupted/outdated.
-		// The user will be notified by a modal if this happens.
-		try
+		fightHistory.clear();
+		fightHistoryHashes.clear();
+		panel.rebuild();
+		fightHistoryLoading = true;
+
+		executor.execute(() ->
 		{
-			FIGHT_HISTORY_DATA_DIR.mkdirs();
-			File fightHistoryData = new File(FIGHT_HISTORY_DATA_DIR, FIGHT_HISTORY_DATA_FNAME);
+			// catch and ignore any errors we may have forgotten to handle - the import will fail but at least the plugin
+			// will continue to function. This should only happen if their fight history data is corrupted/outdated.
+			try
+			{
+				FIGHT_HISTORY_DATA_DIR.mkdirs();
+				fightHistoryStore.load(FIGHT_HISTORY_LOAD_BATCH_SIZE, (List<FightPerformance> fights) ->
+				{
+					for (FightPerformance f : fights)
+					{
+						initializeImportedFight(f);
+						pageOutFightLogs(f);
+					}
+					clientThread.invokeLater(() -> addLoadedFights(fights));
+				});
+			}
+			catch (Exception e)
+			{
+				log.warn("Error while deserializing fight history data: " + e.getMessage());
+				// Display no modal for this error since it could happen on client load and that has odd behavior.
+			}
 
-			// if the fight history data file doesn't exist, create it with an empty array.
-			if (!fightHistoryData.exists())
+			clientThread.invokeLater(this::finishFightHistoryLoad);
+		});
+	}
+
+	// add a batch of fights deserialized by importFightHistoryData()
+	private void addLoadedFights(List<FightPerformance> fights)
+	{
+		// skip the remaining batches if the fight history was reset while loading.
+		if (!fightHistoryLoading) { return; }
+
+		// skip fights saved more than once, which older versions could do when importing the same fights again.
+		fights.forEach(this::addFightToHistory);
+	}
+
+	// once every saved fight was added, sort and trim the fight history if needed, then render the panel. Sorting
+	// is only needed if fights were added while loading, and trimming if the saved data holds more fights than the
+	// fightHistoryLimit. The panel only creates panels for the newest fightHistoryRenderLimit fights.
+	private void finishFightHistoryLoad()
+	{
+		if (!fightHistoryLoading) { return; }
+		fightHistoryLoading = false;
+
+		FightPerformance previous = null;
+		for (FightPerformance f : fightHistory)
+		{
+			if (previous != null && previous.compareTo(f) > 0)
 			{
-				Writer writer = new FileWriter(fightHistoryData);
-				writer.write("[]");
-				writer.close();
+				sortFightHistory();
+				break;
 			}
+			previous = f;
+		}
 
-			// read the saved fights from the file
-			List<FightPerformance> savedFights = Arrays.asList(
-				GSON.fromJson(new FileReader(fightHistoryData), FightPerformance[].class));
+		// remove fights to respect the fightHistoryLimit.
+		trimFightHistory();
+		panel.rebuild();
 
-			fightHistory.clear();
-			importFights(savedFights);
+		if (saveAfterFightHistoryLoad)
+		{
+			saveAfterFightHistoryLoad = false;
+			saveFightHistoryDataAsync();
 		}
-		catch (Exception e)
+
+		if (recalculateAfterFightHistoryLoad)
 		{
-			log.warn("Error while deserializing fight history data: " + e.getMessage());
-			// Display no modal for this error since it could happen on client load and that has odd behavior.
+			recalculateAfterFightHistoryLoad = false;
+			recalculateFightHistory();
+		}
+	}
+
+	// recalculate the deserved damage of every fight in the fight history with the current config, since the saved
+	// deserved damage depends on the ring, ammo and level settings. Waits a moment first so changing several
+	// settings in a row only recalculates once. Fights are then recalculated in parallel, and the results are
+	// applied to every fight at once on the client thread when all of them are done.
+	private void recalculateFightHistory()
+	{
+		if (fightHistoryLoading)
+		{
+			recalculateAfterFightHistoryLoad = true;
 			return;
 		}
 
-		panel.rebuild();
+		final int recalculation = fightHistoryRecalculation.incrementAndGet();
+		final List<FightPerformance> fights = new ArrayList<>(fightHistory);
+		if (fights.isEmpty()) { return; }
+
+		executor.schedule(() -> recalculateFights(fights, recalculation),
+			FIGHT_HISTORY_RECALCULATION_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	private void recalculateFights(List<FightPerformance> fights, int recalculation)
+	{
+		if (recalculation != fightHistoryRecalculation.get()) { return; }
+
+		// the progress monitor is created and updated on the EDT, and only pops up if this takes a while.
+		final AtomicReference<ProgressMonitor> progressMonitor = new AtomicReference<>();
+		SwingUtilities.invokeLater(() -> progressMonitor.set(
+			new ProgressMonitor(panel, "Recalculating fight history...", null, 0, fights.size())));
+		final AtomicInteger numRecalculated = new AtomicInteger();
+		final int progressStep = Math.max(1, fights.size() / 100);
+
+		List<Runnable> results = fights.parallelStream().map((FightPerformance f) ->
+		{
+			ProgressMonitor monitor = progressMonitor.get();
+			if (recalculation != fightHistoryRecalculation.get() || (monitor != null && monitor.isCanceled()))
+			{
+				return null;
+			}
+
+			Runnable result = null;
+			try
+			{
+				result = f.recalculateDamage(fightLogStore);
+			}
+			catch (Exception e)
+			{
+				// the fight could be corrupted, simply keep its current stats.
+				log.warn("Error ignored while recalculating fight: " + e.getMessage());
+			}
+
+			int progress = numRecalculated.incrementAndGet();
+			if (progress % progressStep == 0)
+			{
+				SwingUtilities.invokeLater(() -> progressMonitor.get().setProgress(progress));
+			}
+			return result;
+		}).collect(Collectors.toList());
+
+		SwingUtilities.invokeLater(() -> progressMonitor.get().close());
+		ProgressMonitor monitor = progressMonitor.get();
+		if (monitor != null && monitor.isCanceled())
+		{
+			log.info("Cancelled recalculating fight history.");
+			return;
+		}
+
+		clientThread.invokeLater(() ->
+		{
+			// skip the results if the config changed again in the meantime.
+			if (recalculation != fightHistoryRecalculation.get()) { return; }
+
+			results.forEach((Runnable applyResult) ->
+			{
+				if (applyResult != null)
+				{
+					applyResult.run();
+				}
+			});
+			panel.rebuild();
+			saveFightHistoryDataAsync();
+		});
 	}
 
 	// import additional/extra fight history data supplied by the user
@@ -678,8 +958,10 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 		{
 			// read saved fights from the data string and import them
 			List<FightPerformance> savedFights = Arrays.asList(GSON.fromJson(data, FightPerformance[].class));
-			importFights(savedFights);
-			createConfirmationModal(true, "Fight history data was successfully imported.");
+			int numImported = importFights(savedFights);
+			saveFightHistoryDataAsync();
+			createConfirmationModal(true, "Fight history data was successfully imported" +
+				getSkippedFightsMessage(savedFights.size(), numImported) + ".");
 		}
 		catch (Exception e)
 		{
@@ -692,7 +974,70 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 		panel.rebuild();
 	}
 
-	// set fight log names after importing since they aren't serialized but are on the parent class
+	// import fight history data from a json file chosen by the user. Fights are streamed from the file
+	// on the executor, so only one fight's fight log entries are held in memory at a time: the rest are
+	// paged out as they're read. Progress is shown through the progressMonitor, which is expected to
+	// count from 0 to 100. If it is cancelled, none of the file's fights are imported.
+	public void importUserFightHistoryFile(File file, ProgressMonitor progressMonitor)
+	{
+		executor.execute(() ->
+		{
+			final List<FightPerformance> fights = new ArrayList<>();
+			final long fileLength = Math.max(file.length(), 1);
+			int progress = 0;
+			try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+				JsonReader reader = GSON.newJsonReader(new InputStreamReader(in, StandardCharsets.UTF_8)))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+				{
+					if (progressMonitor.isCanceled())
+					{
+						log.info("Cancelled importing fight history data from file.");
+						return;
+					}
+
+					FightPerformance fight = GSON.fromJson(reader, FightPerformance.class);
+					if (fight == null) { continue; }
+
+					initializeImportedFight(fight);
+					pageOutFightLogs(fight);
+					fights.add(fight);
+
+					progress = updateProgress(progressMonitor, progress, (int)(in.getCount() * 100 / fileLength));
+				}
+				reader.endArray();
+			}
+			catch (Exception e)
+			{
+				log.warn("Error while importing user's fight history data from file: " + e.getMessage());
+				createConfirmationModal(false, "Fight history data was invalid, and could not be imported.");
+				return;
+			}
+			finally
+			{
+				SwingUtilities.invokeLater(progressMonitor::close);
+			}
+
+			clientThread.invokeLater(() ->
+			{
+				int numImported = addImportedFights(fights).size();
+				saveFightHistoryDataAsync();
+				panel.rebuild();
+				createConfirmationModal(true, numImported + " fights were successfully imported" +
+					getSkippedFightsMessage(fights.size(), numImported) + ".");
+			});
+		});
+	}
+
+	private static String getSkippedFightsMessage(int numFights, int numImported)
+	{
+		int numSkipped = numFights - numImported;
+		return numSkipped < 1 ? "" : " (" + numSkipped + " already saved fights were skipped)";
+	}
+
+	// set fight log names after importing since they aren't serialized but are on the parent class,
+	// and intern their gear so identical gear arrays are shared.
 	public void initializeImportedFight(FightPerformance f)
 	{
 		// check for nulls in case the data was corrupted and entries are corrupted.
@@ -702,50 +1047,138 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 			return;
 		}
 
+		// compute the content hash now, while the fight log entries are still in memory.
+		f.getContentHash();
+
 		f.getCompetitor().getFightLogEntries().forEach((FightLogEntry l) ->
-			l.attackerName = f.getCompetitor().getName());
+		{
+			l.attackerName = f.getCompetitor().getName();
+			l.internGear();
+		});
 		f.getOpponent().getFightLogEntries().forEach((FightLogEntry l) ->
-			l.attackerName = f.getOpponent().getName());
+		{
+			l.attackerName = f.getOpponent().getName();
+			l.internGear();
+		});
 	}
 
-	// process and add a list of deserialized json fights to the currently loaded fights
+	// process and add a list of deserialized json fights to the currently loaded fights, skipping
+	// any fights that are already loaded. Returns the number of fights that were added.
 	// can throw NullPointerException if some of the serialized data is corrupted
-	void importFights(List<FightPerformance> fights) throws NullPointerException
+	int importFights(List<FightPerformance> fights) throws NullPointerException
 	{
-		if (fights == null || fights.size() < 1) { return; }
+		if (fights == null || fights.size() < 1) { return 0; }
 
-		fights.removeIf(Objects::isNull);
-		fightHistory.addAll(fights);
-		fightHistory.sort(FightPerformance::compareTo);
+		// set fight log names since they aren't serialized but are on the parent class.
+		List<FightPerformance> importedFights = new ArrayList<>(fights.size());
+		for (FightPerformance f : fights)
+		{
+			if (f == null) { continue; }
 
-		// remove fights to respect the fightHistoryLimit.
-		if (config.fightHistoryLimit() > 0 && fightHistory.size() > config.fightHistoryLimit())
+			initializeImportedFight(f);
+			importedFights.add(f);
+		}
+
+		// only the new fights need to be paged out like other saved fights.
+		final List<FightPerformance> newFights = addImportedFights(importedFights);
+		executor.execute(() -> newFights.forEach(this::pageOutFightLogs));
+		return newFights.size();
+	}
+
+	// add the fight to the end of the fight history, unless the same fight is already in it.
+	// Returns true if it was added.
+	private boolean addFightToHistory(FightPerformance fight)
+	{
+		if (!fightHistoryHashes.add(fight.getContentHash())) { return false; }
+
+		fightHistory.add(fight);
+		return true;
+	}
+
+	// merge imported fights into the fight history, skipping any fights that are already in it, keeping it
+	// sorted and within the fightHistoryLimit. Returns the fights that were added.
+	private List<FightPerformance> addImportedFights(List<FightPerformance> fights)
+	{
+		List<FightPerformance> newFights = new ArrayList<>(fights.size());
+		for (FightPerformance f : fights)
 		{
-			int numToRemove = fightHistory.size() - config.fightHistoryLimit();
-			// Remove oldest fightHistory until the size is equal to the limit.
-			// Should only remove one fight in most cases.
-			fightHistory.removeIf((FightPerformance f) -> fightHistory.indexOf(f) < numToRemove);
+			if (fightHistoryHashes.add(f.getContentHash()))
+			{
+				newFights.add(f);
+			}
 		}
+		if (newFights.isEmpty()) { return newFights; }
 
-		// set fight log names since they aren't serialized but are on the parent class
-		for (FightPerformance f : fightHistory)
+		// both lists are sorted, so merge them in a single pass rather than sorting the whole history again.
+		newFights.sort(FightPerformance::compareTo);
+		List<FightPerformance> existingFights = new ArrayList<>(fightHistory);
+		fightHistory.clear();
+		int i = 0;
+		int j = 0;
+		while (i < existingFights.size() || j < newFights.size())
 		{
-			initializeImportedFight(f);
+			if (j >= newFights.size() ||
+				(i < existingFights.size() && existingFights.get(i).compareTo(newFights.get(j)) <= 0))
+			{
+				fightHistory.add(existingFights.get(i++));
+			}
+			else
+			{
+				fightHistory.add(newFights.get(j++));
+			}
+		}
+
+		// remove fights to respect the fightHistoryLimit.
+		trimFightHistory();
+		return newFights;
+	}
+
+	// remove the oldest fights until the fight history respects the fightHistoryLimit, one poll per fight
+	// removed. Returns true if any fights were removed.
+	private boolean trimFightHistory()
+	{
+		if (config.fightHistoryLimit() <= 0) { return false; }
+
+		boolean removed = false;
+		while (fightHistory.size() > config.fightHistoryLimit())
+		{
+			fightHistoryHashes.remove(fightHistory.pollFirst().getContentHash());
+			removed = true;
 		}
+		return removed;
+	}
+
+	// sort the fight history chronologically. Only needed when fights may have been added out of order.
+	private void sortFightHistory()
+	{
+		ArrayList<FightPerformance> sortedFights = new ArrayList<>(fightHistory);
+		sortedFights.sort(FightPerformance::compareTo);
+		fightHistory.clear();
+		fightHistory.addAll(sortedFights);
 	}
 
 	// reset the loaded fight history as well as the saved json data
 	public void resetFightHistory()
 	{
+		// stop adding saved fights if they're still loading.
+		fightHistoryLoading = false;
+		saveAfterFightHistoryLoad = false;
+		recalculateAfterFightHistoryLoad = false;
+		fightHistoryRecalculation.incrementAndGet();
 		fightHistory.clear();
-		saveFightHistoryData();
+		fightHistoryHashes.clear();
+		saveFightHistoryDataAsync();
 		panel.rebuild();
 	}
 
 	// remove a fight from the loaded fight history
 	public void removeFight(FightPerformance fight)
 	{
-		fightHistory.remove(fight);
+		if (fightHistory.remove(fight))
+		{
+			fightHistoryHashes.remove(fight.getContentHash());
+		}
+		saveFightHistoryDataAsync();
 		panel.rebuild();
 	}
 
@@ -804,6 +1237,66 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 		createConfirmationModal(true, "Fight history data was copied to the clipboard.");
 	}
 
+	// save the complete fight history data to a json file chosen by the user. The fights are written one at
+	// a time on the executor rather than building the complete json first, paging in a single fight's fight log
+	// entries at a time. Progress is shown through the progressMonitor, which is expected to count from 0 to 100.
+	// If it is cancelled, the partially written file is deleted.
+	public void exportFightHistoryToFile(File file, ProgressMonitor progressMonitor)
+	{
+		final List<FightPerformance> fights = new ArrayList<>(fightHistory);
+		executor.execute(() ->
+		{
+			boolean cancelled = false;
+			int progress = 0;
+			try (JsonWriter writer = GSON.newJsonWriter(new OutputStreamWriter(
+				new BufferedOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)))
+			{
+				writer.beginArray();
+				for (int i = 0; i < fights.size(); i++)
+				{
+					if (progressMonitor.isCanceled())
+					{
+						cancelled = true;
+						break;
+					}
+
+					GSON.toJson(fights.get(i), FightPerformance.class, writer);
+					progress = updateProgress(progressMonitor, progress, (i + 1) * 100 / fights.size());
+				}
+				writer.endArray();
+			}
+			catch (Exception e)
+			{
+				log.warn("Error while exporting fight history data to file: " + e.getMessage());
+				createConfirmationModal(false, "Fight history data could not be saved to " + file.getName() + ".");
+				return;
+			}
+			finally
+			{
+				SwingUtilities.invokeLater(progressMonitor::close);
+			}
+
+			if (cancelled)
+			{
+				log.info("Cancelled exporting fight history data to file.");
+				file.delete();
+				return;
+			}
+
+			createConfirmationModal(true, fights.size() + " fights were saved to " + file.getName() + ".");
+		});
+	}
+
+	// update the progressMonitor on the EDT if the progress changed, returning the new progress.
+	private static int updateProgress(ProgressMonitor progressMonitor, int oldProgress, int progress)
+	{
+		if (progress != oldProgress)
+		{
+			SwingUtilities.invokeLater(() -> progressMonitor.setProgress(progress));
+		}
+		return progress;
+	}
+
 	public void exportFight(FightPerformance fight)
 	{
 		if (fight == null) { return; }
@@ -827,6 +1320,54 @@ public class PvpPerformanceTrackerPlugin extends Plugin
 		createConfirmationModal(success, confirmMessage);
 	}
 
+	// read, pair and merge all the fights exported into the folder on the executor, see BatchFightAnalysis.
+	// The callback is run on the EDT once done.
+	public void analyzeFightFolder(File folder, Consumer<BatchFightAnalysis> callback)
+	{
+		executor.execute(() ->
+		{
+			BatchFightAnalysis batchAnalysis = new BatchFightAnalysis();
+			batchAnalysis.run(folder, () -> callback.accept(batchAnalysis));
+		});
+	}
+
+	// replay the fight's logged attacks many times with random damage rolls on the executor, see FightSimulator,
+	// then show each fighter's chance of winning and their expected HP at the end of the fight.
+	public void simulateFight(FightPerformance fight)
+	{
+		if (fight == null) { return; }
+
+		executor.execute(() ->
+		{
+			try
+			{
+				FightSimulator simulator = new FightSimulator(fight);
+				if (simulator.getAttackCount() < 1)
+				{
+					createConfirmationModal(false, "This fight has no logged attacks to simulate.");
+					return;
+				}
+
+				FightSimulator.Result result = simulator.simulate(FightSimulator.DEFAULT_ITERATIONS, System.nanoTime());
+				String competitorName = fight.getCompetitor().getName();
+				String opponentName = fight.getOpponent().getName();
+				int lastAttack = simulator.getAttackCount() - 1;
+				createConfirmationModal(true, "<html>Simulated " + competitorName + " vs " + opponentName + " " +
+					String.format("%,d", result.getIterations()) + " times, based on the logged attacks:<br>" +
+					competitorName + " won " + String.format("%.1f%%", result.getCompetitorWinChance() * 100) + ", " +
+					opponentName + " won " + String.format("%.1f%%", result.getOpponentWinChance() * 100) + ", " +
+					"nobody died " + String.format("%.1f%%", result.getNoDeathChance() * 100) + ".<br>" +
+					"Expected HP at the end: " + competitorName + " " + String.format("%.1f", result.getCompetitorHp()[lastAttack]) +
+					", " + opponentName + " " + String.format("%.1f", result.getOpponentHp()[lastAttack]) + "</html>");
+			}
+			catch (Exception e)
+			{
+				log.warn("Error while simulating fight: " + e.getMessage());
+				createConfirmationModal(false, "The fight could not be simulated.");
+			}
+		});
+	}
+
 	public void copyFightAsDiscordMsg(FightPerformance fight)
 	{
 		if (fight == null) { return; }
@@ -26,17 +26,30 @@ package matsyir.pvpperformancetracker.controllers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.swing.SwingUtilities;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
+import matsyir.pvpperformancetracker.models.ConfigSnapshot;
 import matsyir.pvpperformancetracker.models.FightLogEntry;
 
 @Slf4j
 public class AnalyzedFightPerformance extends FightPerformance
 {
+	// number of attacks one client can have logged more than the other at any point of the fight, on top of
+	// the difference in total attacks logged, see alignFullEntries. Grows with the fight's length up to the max.
+	private static final int ALIGNMENT_BAND = 16;
+	private static final int MAX_ALIGNMENT_BAND = 64;
+	// fights whose total attacks logged differ by more than this can't be the same fight seen by both clients.
+	private static final int MAX_ALIGNMENT_LENGTH_DIFFERENCE = 256;
+	private static final int MATCH_SCORE = 2, SAME_TICK_DIFF_SCORE = 1;
+	private static final byte MOVE_MATCH = 1, MOVE_SKIP_MAIN = 2, MOVE_SKIP_OPPOSING = 3;
+
 	// fight's full fight logs, saved in "pairs", as an array:
 	// [0]: attacker's full log entry
 	// [1]: defender's defensive log entry
@@ -48,15 +61,33 @@ public class AnalyzedFightPerformance extends FightPerformance
 	@Getter
 	FightPerformance opposingFight;
 	// create a more detailed fight performance by merging data from two opposing fight logs
-	// also include the fights for easier access to general info
+	// also include the fights for easier access to general info. The logs are merged on the client thread,
+	// then the swingCallback is run on the EDT.
 	public AnalyzedFightPerformance(FightPerformance mainFight, FightPerformance opposingFight, Runnable swingCallback) throws Exception
+	{
+		this(mainFight, opposingFight, CONFIG_SNAPSHOT, mergeLogs -> PLUGIN.getClientThread().invokeLater(() ->
+		{
+			mergeLogs.run();
+			SwingUtilities.invokeLater(swingCallback);
+		}));
+	}
+
+	// merge the fight logs on the calling thread, calculating attacks with the given config snapshot's settings,
+	// so batch analysis can merge many fights on worker threads.
+	AnalyzedFightPerformance(FightPerformance mainFight, FightPerformance opposingFight, ConfigSnapshot config) throws Exception
+	{
+		this(mainFight, opposingFight, config, Runnable::run);
+	}
+
+	private AnalyzedFightPerformance(FightPerformance mainFight, FightPerformance opposingFight, ConfigSnapshot config,
+		Consumer<Runnable> mergeRunner) throws Exception
 	{
 		this.mainFight = mainFight;
 		this.opposingFight = opposingFight;
 		String cName = mainFight.competitor.getName();
 		String oName = mainFight.opponent.getName();
-		this.competitor = new Fighter(mainFight, cName);
-		this.opponent = new Fighter(mainFight, oName);
+		this.competitor = new Fighter(mainFight, cName, config);
+		this.opponent = new Fighter(mainFight, oName, config);
 		if (mainFight.competitor.isDead())
 		{
 			this.competitor.died();
@@ -92,173 +123,252 @@ public class AnalyzedFightPerformance extends FightPerformance
 		ArrayList<FightLogEntry> fullOpponentFightLogEntries = opponentFightLogEntries.stream()
 			.filter(FightLogEntry::isFullEntry).sorted().collect(Collectors.toCollection(ArrayList::new));
 
-		int offsetsToCheck = 2; // total number of fight log offsets to start from and find matches in the opposing fight.
-		int attacksToCheck = 12; // total number of opposing logs to check starting from the offset.
-		// TODO: THIS SHOULDNT BREAK IF attacksToCheck IS 300+ or unused & using all attacks/logs ????
-		// ^ or maybe we dont have specific enough data to have it working 100% this way?
-
-		// save matching logs as "pairs", in an array:
-		// [0] = main fight's log entry match
-		// [1] = opposing fight's log entry match
-		// for each different offset start (from mainFight), save an array of the matching logs.
-		ArrayList<ArrayList<FightLogEntry[]>> matchingLogs = new ArrayList<>();
-
-
-		// go through up to the first 5 full logs to match with the opponent's first 6 attacks.
-		// do this with a few different offsets and go with the results that had the most matches in 6 attacks.
-		//
-		// Why multiple offsets rather than one pass, or setting starting tick to 0?
-		// It's possible one of the clients misses the first attack, and that people use the same gear
-		// for many attacks, which may cause logs to match each-other while being offset, causing future
-		// attacks to often be missed, and always be misleading. This way, if initial attacks are missed
-		for (int mainOffset = 0; mainOffset < offsetsToCheck; mainOffset++)
+		// align the two sets of full logs, the same attacks logged by both clients, to find which ones match.
+		// Either client could have missed some attacks, and people often use the same gear for many attacks,
+		// so logs are matched as a whole sequence rather than by looking for each attack's first match.
+		ArrayList<FightLogEntry[]> matchingLogs = alignFullEntries(fullMainFightLogEntries, fullOpponentFightLogEntries);
+		if (matchingLogs.size() < 2)
 		{
-			for (int oppOffset = 0; oppOffset < offsetsToCheck; oppOffset++)
-			{
-				ArrayList<FightLogEntry[]> currentOffsetMatches = new ArrayList<>();
-				int highestMatchIdx = -1;
-				for (int i = mainOffset; i < fullMainFightLogEntries.size() && i < attacksToCheck; i++)
-				{
-					FightLogEntry entry = fullMainFightLogEntries.get(i);
-
-					// .skip: do not check for matches on an attack we already got a match for, so skip it.
-					//     if the highestMatchIdx is still <0, no matches were found yet so keep checking with oppOffset.
-					int skip = highestMatchIdx < 0 ? oppOffset : highestMatchIdx + 1;
-					// .limit: similarly to .skip, reduce the amount of attacks we check by the amount we skipped.
-					// .filter: find matching fight log entries from the opposing fight.
-					// do not use dps calc values for comparison as they can be different depending on each player's
-					// config. could potentially fix this by recalculating fights first, but comparing all of these
-					// should be ok enough. if gear and pray is the same, then so would dps anyways (before we do
-					// the proper brew/level merge we are currently doing)
-					FightLogEntry matchingOppLog = fullOpponentFightLogEntries.stream()
-						.skip(skip)
-						.limit(attacksToCheck - skip)
-						.filter(oppEntry -> entry.attackerName.equals(oppEntry.attackerName) &&
-							entry.getAnimationData() == oppEntry.getAnimationData() &&
-							Arrays.equals(entry.getAttackerGear(), oppEntry.getAttackerGear()) &&
-							Arrays.equals(entry.getDefenderGear(), oppEntry.getDefenderGear()) &&
-							entry.getAttackerOverhead() == oppEntry.getAttackerOverhead() &&
-							entry.getDefenderOverhead() == oppEntry.getDefenderOverhead() &&
-							entry.success() == oppEntry.success() &&
-							entry.isSplash() == oppEntry.isSplash())
-						.findFirst()
-						.orElse(null);
-
-					// if a match was found, save the index of the match, and add both entries to the current offset matches.
-					if (matchingOppLog != null)
-					{
-						int logEntryIdx = fullOpponentFightLogEntries.indexOf(matchingOppLog);
-
-						if (logEntryIdx <= highestMatchIdx) // this should never happen.
-						{
-							throw new Exception("Invalid state during fight merge: logEntryIdx was under highestMatchIdx");
-						}
+			throw new Exception("Unable to match initial attacks for fight analysis.");
+		}
 
-						highestMatchIdx = logEntryIdx;
-						currentOffsetMatches.add(new FightLogEntry[]{entry, matchingOppLog});
-					}
-				}
+		// find the tick difference between the two clients from the matching logs. Only differences confirmed
+		// by at least two consecutive matches are used, so a single coincidental match can't throw it off.
+		// The difference can drift during long fights, in which case each confirmed difference is used from
+		// the first matching log it was seen on: [0] = opponent's tick it starts from, [1] = tick difference.
+		ArrayList<int[]> tickDiffs = new ArrayList<>();
+		for (int i = 1; i < matchingLogs.size(); i++)
+		{
+			FightLogEntry[] previousMatch = matchingLogs.get(i - 1);
+			FightLogEntry[] match = matchingLogs.get(i);
+			int previousTickDiff = previousMatch[0].getTick() - previousMatch[1].getTick();
+			int curTickDiff = match[0].getTick() - match[1].getTick();
+			if (curTickDiff != previousTickDiff) { continue; }
 
-				if (currentOffsetMatches.size() >= 2)
-				{
-					matchingLogs.add(currentOffsetMatches);
-				}
+			if (tickDiffs.isEmpty())
+			{
+				tickDiffs.add(new int[]{Integer.MIN_VALUE, curTickDiff});
+			}
+			else if (tickDiffs.get(tickDiffs.size() - 1)[1] != curTickDiff)
+			{
+				tickDiffs.add(new int[]{previousMatch[1].getTick(), curTickDiff});
 			}
 		}
 
-		if (matchingLogs.size() < 1)
+		if (tickDiffs.isEmpty())
 		{
-			throw new Exception("Unable to match initial attacks for fight analysis.");
+			throw new Exception("Could not find matching initial attack logs in order to merge fights.");
 		}
 
-		// get the array of log entry matches that has the highest number of matches, as it should be the most accurate.
-		// we'll use the matches in this array to determine the tick offset between the two sets of logs.
-		// sort log matches by size, meaning most matches first.
-		matchingLogs.sort(Comparator.comparing(ArrayList<FightLogEntry[]>::size).reversed());
-
-		// ensure the tick difference found is valid: consistent difference between the first few matching attacks found.
-		// this could potentially somehow still accept unrelated/invalid fights, as it could accept a single attack match,
-		// but it should properly merge actual matching fights
-		int bestTickDiff = 0;
-		boolean foundValidTickDiff = false;
-		for (ArrayList<FightLogEntry[]> logMatches : matchingLogs)
+		// now that we have the tick differences, we're ready to actually merge the two sets of log entries.
+		// start by adjusting the opponent's logs' ticks so they line up with the main fight. They're sorted by
+		// tick, so the tick differences can be walked through in order.
+		int tickDiffIdx = 0;
+		for (FightLogEntry log : opponentFightLogEntries)
 		{
-			int tickDiff = 0;
-			boolean tickDiffValid = true;
-			for (int i = 0; i < logMatches.size(); i++)
+			while (tickDiffIdx + 1 < tickDiffs.size() && tickDiffs.get(tickDiffIdx + 1)[0] <= log.getTick())
 			{
-				FightLogEntry[] match = logMatches.get(i);
+				tickDiffIdx++;
+			}
+			log.setTick(log.getTick() + tickDiffs.get(tickDiffIdx)[1]);
+		}
+
+		analyzedMatchingLogs = new ArrayList<>();
 
-				int curTickDiff = match[0].getTick() - match[1].getTick();
+		// index the opponent's logs by tick, so each of the main fight's logs finds its match directly:
+		// attacking logs to match the competitor's defensive logs, and defensive logs to match their attacking logs.
+		String opponentName = mainFight.opponent.getName();
+		TickIndex opponentAttackLogs = new TickIndex(opponentFightLogEntries, opponentName, true);
+		TickIndex opponentDefenceLogs = new TickIndex(opponentFightLogEntries, opponentName, false);
 
-				// ensure we have a consistent tick difference between the first few matching attacks.
-				if (i == 0)
+		// now that all the ticks should be lined up on the opponent fight log entries, find matching tick pairs for offensive : defensive logs.
+		// skip the 'main' client's opponent logs, as those are the ones with less data we are trying to improve by using the opponent's data.
+		// so, only loop through the main competitor's logs. We will add opponent attacks when we detect a defensive log.
+		mergeRunner.accept(() ->
+		{
+			for (FightLogEntry log : mainFightLogEntries)
+			{
+				if (!log.attackerName.equals(mainFight.competitor.getName())) { continue; }
+
+				// if the log is a full entry, then this is an attacking log coming from the competitor,
+				// so we need to find a matching defensive log from the opponent.
+				if (log.isFullEntry())
 				{
-					tickDiff = curTickDiff;
+					FightLogEntry matchingDefenderLog = opponentDefenceLogs.get(log.getTick());
+					if (matchingDefenderLog != null)
+					{
+						addCompetitorAttack(log, matchingDefenderLog);
+					}
+				}
+				else // if the log is not a full entry, it's a defensive log coming from the competitor,
+				{    // meaning we need to match it to an opponent's attacking log.
+					FightLogEntry matchingAttackerLog = opponentAttackLogs.get(log.getTick());
+					if (matchingAttackerLog != null)
+					{
+						addOpponentAttack(matchingAttackerLog, log);
+					}
+				}
+			}
+		});
+	}
+
+	// align the two sequences of full log entries, keeping as many matching entries as possible in the same order
+	// (a longest common subsequence). Attacks with the same gear & prayers are common, so matches that keep the same
+	// tick difference as the previous match score a bit higher, to prefer aligning the actual same attacks.
+	// Only alignments near the diagonal are considered (ALIGNMENT_BAND, growing slowly with the fight's length as
+	// missed attacks add up), so this takes O(n * band) time and bytes rather than O(n * m). Sequences whose lengths
+	// differ by more than MAX_ALIGNMENT_LENGTH_DIFFERENCE aren't aligned at all, which returns no matches.
+	// Returns the matching pairs in order: [0] = main fight's entry, [1] = opposing fight's entry.
+	static ArrayList<FightLogEntry[]> alignFullEntries(ArrayList<FightLogEntry> mainEntries, ArrayList<FightLogEntry> opposingEntries)
+	{
+		int n = mainEntries.size();
+		int m = opposingEntries.size();
+		if (Math.abs(n - m) > MAX_ALIGNMENT_LENGTH_DIFFERENCE) { return new ArrayList<>(); }
+
+		int band = Math.min(MAX_ALIGNMENT_BAND, ALIGNMENT_BAND + (int) Math.sqrt(n + m));
+		// band of diagonals (i - j) to fill, covering both the start (0) and end (n - m) of the alignment.
+		int minDiagonal = Math.min(0, n - m) - band;
+		int maxDiagonal = Math.max(0, n - m) + band;
+		int width = maxDiagonal - minDiagonal + 1;
+
+		// scores[d] = best score aligning the first i main entries with the first j = i - (d + minDiagonal)
+		// opposing entries, moves[i][d] = the last step taken to get there, and tickDiffs[d] = the tick
+		// difference of the last match along the way. Only the moves are kept for every row, to trace the
+		// alignment back: scores and tickDiffs only need the previous row (i - 1) and the current one (i).
+		// entries match if their fingerprints are equal, see FightLogEntry::getFingerprint. dps calc values aren't
+		// compared as they can be different depending on each player's config, but if gear and pray are the same,
+		// then so would dps anyways (before we do the proper brew/level merge we are currently doing).
+		long[] mainFingerprints = mainEntries.stream().mapToLong(FightLogEntry::getFingerprint).toArray();
+		long[] opposingFingerprints = opposingEntries.stream().mapToLong(FightLogEntry::getFingerprint).toArray();
+
+		byte[][] moves = new byte[n + 1][width];
+		int[] previousScores = new int[width], scores = new int[width];
+		int[] previousTickDiffs = new int[width], tickDiffs = new int[width];
+		for (int i = 0; i <= n; i++)
+		{
+			int[] swap = previousScores;
+			previousScores = scores;
+			scores = swap;
+			swap = previousTickDiffs;
+			previousTickDiffs = tickDiffs;
+			tickDiffs = swap;
+
+			// descending, as skipping an opposing entry comes from the next diagonal on the same row.
+			for (int d = width - 1; d >= 0; d--)
+			{
+				int j = i - (d + minDiagonal);
+				if (j < 0 || j > m)
+				{
+					scores[d] = -1;
+					continue;
+				}
+				if (i == 0 || j == 0)
+				{
+					scores[d] = 0;
+					moves[i][d] = i == 0 ? MOVE_SKIP_OPPOSING : MOVE_SKIP_MAIN;
+					tickDiffs[d] = Integer.MIN_VALUE;
 					continue;
 				}
 
-				if (curTickDiff != tickDiff)
+				int best = -1;
+				byte move = 0;
+				int tickDiff = Integer.MIN_VALUE;
+				// skip the main entry: (i - 1, j) is on the previous diagonal.
+				if (d > 0 && previousScores[d - 1] > best)
 				{
-					tickDiffValid = false;
-					break;
+					best = previousScores[d - 1];
+					move = MOVE_SKIP_MAIN;
+					tickDiff = previousTickDiffs[d - 1];
 				}
+				// skip the opposing entry: (i, j - 1) is on the next diagonal.
+				if (d < width - 1 && scores[d + 1] > best)
+				{
+					best = scores[d + 1];
+					move = MOVE_SKIP_OPPOSING;
+					tickDiff = tickDiffs[d + 1];
+				}
+				// match both entries: (i - 1, j - 1) is on the same diagonal.
+				if (previousScores[d] >= 0 && mainFingerprints[i - 1] == opposingFingerprints[j - 1])
+				{
+					int matchTickDiff = mainEntries.get(i - 1).getTick() - opposingEntries.get(j - 1).getTick();
+					int matchScore = previousScores[d] + MATCH_SCORE +
+						(previousTickDiffs[d] == matchTickDiff ? SAME_TICK_DIFF_SCORE : 0);
+					if (matchScore >= best)
+					{
+						best = matchScore;
+						move = MOVE_MATCH;
+						tickDiff = matchTickDiff;
+					}
+				}
+				scores[d] = best;
+				moves[i][d] = move;
+				tickDiffs[d] = tickDiff;
 			}
+		}
 
-			if (tickDiffValid)
+		// trace the alignment back from the end of both sequences.
+		ArrayList<FightLogEntry[]> matches = new ArrayList<>();
+		int i = n;
+		int d = n - m - minDiagonal;
+		while (i > 0 && i - (d + minDiagonal) > 0)
+		{
+			int j = i - (d + minDiagonal);
+			byte move = moves[i][d];
+			if (move == MOVE_MATCH)
+			{
+				matches.add(new FightLogEntry[]{ mainEntries.get(i - 1), opposingEntries.get(j - 1) });
+				i--;
+			}
+			else if (move == MOVE_SKIP_MAIN)
+			{
+				i--;
+				d--;
+			}
+			else
 			{
-				bestTickDiff = tickDiff;
-				foundValidTickDiff = true;
-				break;
+				d++;
 			}
 		}
+		Collections.reverse(matches);
+		return matches;
+	}
 
-		if (!foundValidTickDiff)
-		{
-			throw new Exception("Could not find matching initial attack logs in order to merge fights.");
-		}
+	// the first log entry of each tick from one attacker, either only full or only defensive entries, sorted by tick
+	// to be found with a binary search. Sized by the number of entries rather than the ticks they span, as ticks
+	// aligned from another client can be far apart.
+	private static class TickIndex
+	{
+		private final int[] ticks;
+		private final FightLogEntry[] entries;
 
-		// now that we have the best tick diff, we're ready to actually merge the two sets of log entries.
-		// start by adjusting the opponent's logs' ticks so they line up with the main fight.
-		for (FightLogEntry log : opponentFightLogEntries)
+		private TickIndex(ArrayList<FightLogEntry> logs, String attackerName, boolean fullEntries)
 		{
-			log.setTick(log.getTick() + bestTickDiff);
-		}
+			// stable sort, so the first entry of each tick stays first.
+			ArrayList<FightLogEntry> attackerLogs = logs.stream()
+				.filter(log -> log.isFullEntry() == fullEntries && log.attackerName.equals(attackerName))
+				.sorted(Comparator.comparingInt(FightLogEntry::getTick))
+				.collect(Collectors.toCollection(ArrayList::new));
 
-		analyzedMatchingLogs = new ArrayList<>();
+			int[] ticks = new int[attackerLogs.size()];
+			FightLogEntry[] entries = new FightLogEntry[attackerLogs.size()];
+			int size = 0;
+			for (FightLogEntry log : attackerLogs)
+			{
+				if (size > 0 && ticks[size - 1] == log.getTick()) { continue; }
 
-		// now that all the ticks should be lined up on the opponent fight log entries, find matching tick pairs for offensive : defensive logs.
-		// skip the 'main' client's opponent logs, as those are the ones with less data we are trying to improve by using the opponent's data.
-		// so, only loop through the main competitor's logs. We will add opponent attacks when we detect a defensive log.
-		PLUGIN.getClientThread().invokeLater(() ->
-		{
-			mainFightLogEntries.stream()
-				.filter(log -> log.attackerName.equals(mainFight.competitor.getName()))
-				.forEachOrdered(log -> {
-					// if the log is a full entry, then this is an attacking log coming from the competitor,
-					// so we need to find a matching defensive log from the opponent.
-					if (log.isFullEntry())
-					{
-						opponentFightLogEntries.stream()
-							.filter(ol -> ol.getTick() == log.getTick())
-							.filter(ol -> !ol.isFullEntry())
-							.filter(ol -> ol.attackerName.equals(mainFight.opponent.getName()))
-							.findFirst() // when a match is finally found, add the attack.
-							.ifPresent(matchingDefenderLog -> addCompetitorAttack(log, matchingDefenderLog));
-					}
-					else // if the log is not a full entry, it's a defensive log coming from the competitor,
-					{    // meaning we need to match it to an opponent's attacking log.
-						opponentFightLogEntries.stream()
-							.filter(ol -> ol.getTick() == log.getTick())
-							.filter(FightLogEntry::isFullEntry)
-							.filter(ol -> ol.attackerName.equals(mainFight.opponent.getName()))
-							.findFirst() // when a match is finally found, add the attack.
-							.ifPresent(matchingAttackerLog -> addOpponentAttack(matchingAttackerLog, log));
-					}
-				});
+				ticks[size] = log.getTick();
+				entries[size] = log;
+				size++;
+			}
+			this.ticks = Arrays.copyOf(ticks, size);
+			this.entries = Arrays.copyOf(entries, size);
+		}
 
-			SwingUtilities.invokeLater(swingCallback);
-		});
+		private FightLogEntry get(int tick)
+		{
+			int idx = Arrays.binarySearch(ticks, tick);
+			return idx < 0 ? null : entries[idx];
+		}
 	}
 
 	void addCompetitorAttack(FightLogEntry attackerLog, FightLogEntry defenderLog)
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.GSON;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
+import matsyir.pvpperformancetracker.models.ConfigSnapshot;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+
+// Fight analysis of many fights at once: reads every fight exported into a folder (fight history files or single
+// fights, from any number of players), pairs up the fights that were recorded by both fighters' clients, by their
+// mirrored competitor/opponent names and overlapping fight times, then merges each pair into an
+// AnalyzedFightPerformance. Merges run in parallel on worker threads, all using the same config snapshot.
+@Slf4j
+@Getter
+public class BatchFightAnalysis
+{
+	// merged fights, sorted by fight time once the analysis is done.
+	private final List<AnalyzedFightPerformance> mergedFights = Collections.synchronizedList(new ArrayList<>());
+	private int fileCount;
+	private int invalidFileCount;
+	private int fightCount; // distinct valid fights read
+	private int pairCount;
+	private final AtomicInteger failedMergeCount = new AtomicInteger();
+
+	// read, pair and merge the fights from the folder. Reading and pairing is done on the calling thread, which
+	// shouldn't be the client thread or the EDT, and merges on worker threads. The callback is run on the EDT once
+	// every merge is done.
+	public void run(File folder, Runnable callback)
+	{
+		List<FightPerformance> fights = readFights(folder);
+		List<FightPerformance[]> pairs = pairFights(fights);
+		pairCount = pairs.size();
+
+		// the damage calculations don't depend on any state other than the config snapshot, so every merge can
+		// run in parallel off the client thread, with the same settings even if the config changes meanwhile.
+		final ConfigSnapshot config = CONFIG_SNAPSHOT;
+		pairs.parallelStream().forEach(pair ->
+		{
+			try
+			{
+				mergedFights.add(new AnalyzedFightPerformance(pair[0], pair[1], config));
+			}
+			catch (Exception e)
+			{
+				log.debug("Could not merge fights during batch fight analysis: " + e.getMessage());
+				failedMergeCount.incrementAndGet();
+			}
+		});
+
+		mergedFights.sort(Comparator.naturalOrder());
+		SwingUtilities.invokeLater(callback);
+	}
+
+	// read every fight from the folder's json/txt files, each holding either a single fight or an array of them.
+	// Fights exported more than once are only kept once.
+	private List<FightPerformance> readFights(File folder)
+	{
+		List<FightPerformance> fights = new ArrayList<>();
+		Set<Long> contentHashes = new HashSet<>();
+		File[] files = folder.listFiles((dir, name) ->
+			name.toLowerCase().endsWith(".json") || name.toLowerCase().endsWith(".txt"));
+		if (files == null) { return fights; }
+
+		for (File file : files)
+		{
+			fileCount++;
+			try (JsonReader reader = GSON.newJsonReader(new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))))
+			{
+				if (reader.peek() == JsonToken.BEGIN_ARRAY)
+				{
+					reader.beginArray();
+					while (reader.hasNext())
+					{
+						addFight(fights, contentHashes, GSON.fromJson(reader, FightPerformance.class));
+					}
+					reader.endArray();
+				}
+				else
+				{
+					addFight(fights, contentHashes, GSON.fromJson(reader, FightPerformance.class));
+				}
+			}
+			catch (Exception e)
+			{
+				log.debug("Skipped invalid file during batch fight analysis: " + file.getName() + ": " + e.getMessage());
+				invalidFileCount++;
+			}
+		}
+
+		fightCount = fights.size();
+		return fights;
+	}
+
+	private static void addFight(List<FightPerformance> fights, Set<Long> contentHashes, FightPerformance fight)
+	{
+		if (fight == null || fight.getCompetitor() == null || fight.getOpponent() == null ||
+			fight.getCompetitor().getName() == null || fight.getOpponent().getName() == null ||
+			fight.getAllFightLogEntries().isEmpty())
+		{
+			return;
+		}
+
+		PLUGIN.initializeImportedFight(fight);
+		if (contentHashes.add(fight.getContentHash()))
+		{
+			fights.add(fight);
+		}
+	}
+
+	// pair each fight with the other client's recording of it: a fight with the competitor and opponent names
+	// swapped, whose time range (first logged attack to last fight time) overlaps. If several do, the one that
+	// ended closest to it is used. Each fight is used in one pair at most.
+	static List<FightPerformance[]> pairFights(List<FightPerformance> fights)
+	{
+		Map<String, List<FightPerformance>> fightsByNames = new HashMap<>();
+		Map<FightPerformance, Long> startTimes = new IdentityHashMap<>();
+		for (FightPerformance fight : fights)
+		{
+			fightsByNames.computeIfAbsent(getNamesKey(fight.getCompetitor(), fight.getOpponent()), k -> new ArrayList<>())
+				.add(fight);
+			List<FightLogEntry> entries = fight.getAllFightLogEntries();
+			startTimes.put(fight, entries.isEmpty() ? fight.getLastFightTime() : entries.get(0).getTime());
+		}
+
+		List<FightPerformance[]> pairs = new ArrayList<>();
+		Set<FightPerformance> paired = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (FightPerformance fight : fights)
+		{
+			if (paired.contains(fight)) { continue; }
+
+			List<FightPerformance> candidates = fightsByNames.get(getNamesKey(fight.getOpponent(), fight.getCompetitor()));
+			if (candidates == null) { continue; }
+
+			FightPerformance bestMatch = null;
+			for (FightPerformance candidate : candidates)
+			{
+				if (paired.contains(candidate) ||
+					startTimes.get(fight) > candidate.getLastFightTime() ||
+					startTimes.get(candidate) > fight.getLastFightTime())
+				{
+					continue;
+				}
+
+				if (bestMatch == null || Math.abs(candidate.getLastFightTime() - fight.getLastFightTime()) <
+					Math.abs(bestMatch.getLastFightTime() - fight.getLastFightTime()))
+				{
+					bestMatch = candidate;
+				}
+			}
+
+			if (bestMatch != null)
+			{
+				paired.add(fight);
+				paired.add(bestMatch);
+				pairs.add(new FightPerformance[]{ fight, bestMatch });
+			}
+		}
+		return pairs;
+	}
+
+	private static String getNamesKey(Fighter competitor, Fighter opponent)
+	{
+		return competitor.getName().toLowerCase() + '\n' + opponent.getName().toLowerCase();
+	}
+
+	public int getFailedMergeCount()
+	{
+		return failedMergeCount.get();
+	}
+
+	public int getUnpairedFightCount()
+	{
+		return fightCount - pairCount * 2;
+	}
+}
@@ -34,9 +34,14 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Objects;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import matsyir.pvpperformancetracker.FightLogStore;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
+import static matsyir.pvpperformancetracker.models.Fnv1a.OFFSET_BASIS;
+import static matsyir.pvpperformancetracker.models.Fnv1a.hashLong;
+import static matsyir.pvpperformancetracker.models.Fnv1a.hashString;
 import matsyir.pvpperformancetracker.models.AnimationData;
 import matsyir.pvpperformancetracker.models.CombatLevels;
 import matsyir.pvpperformancetracker.models.FightLogEntry;
@@ -77,6 +82,10 @@ public class FightPerformance implements Comparable<FightPerformance>
 	public FightType fightType; // save a boolean if the fight was done in LMS, so we can know those stats/rings/ammo are used.
 
 	private int competitorPrevHp; // intentionally don't serialize this, temp variable used to calculate hp healed.
+	@Getter(AccessLevel.NONE)
+	private long contentHash; // not serialized either, computed on demand by getContentHash().
+	@Getter(AccessLevel.NONE)
+	private boolean contentHashComputed;
 
 	// shouldn't be used, just here so we can make a subclass, weird java thing
 	public FightPerformance()
@@ -186,12 +195,12 @@ public class FightPerformance implements Comparable<FightPerformance>
 
 	// If the given playerName is in this fight, check the Fighter's current animation,
 	// add an attack if attacking, and compare attack style used with the opponent's overhead
-	// to determine if successful.
-	public void checkForAttackAnimations(Player eventSource, CombatLevels competitorLevels)
+	// to determine if successful. Returns true if an attack was added.
+	public boolean checkForAttackAnimations(Player eventSource, CombatLevels competitorLevels)
 	{
 		if (eventSource == null || eventSource.getName() == null || eventSource.getInteracting() == null || eventSource.getInteracting().getName() == null)
 		{
-			return;
+			return false;
 		}
 
 		String eName = eventSource.getName(); // event source name
@@ -211,6 +220,7 @@ public class FightPerformance implements Comparable<FightPerformance>
 					offensivePray,
 					competitorLevels);
 				lastFightTime = Instant.now().toEpochMilli();
+				return true;
 			}
 		}
 		else if (eName.equals(opponent.getName()) && Objects.equals(interactingName, competitor.getName()))
@@ -225,8 +235,11 @@ public class FightPerformance implements Comparable<FightPerformance>
 				// add a defensive log for the competitor while the opponent is attacking, to be used with the fight analysis/merge
 				competitor.addDefensiveLogs(competitorLevels, PLUGIN.currentlyUsedOffensivePray());
 				lastFightTime = Instant.now().toEpochMilli();
+				return true;
 			}
 		}
+
+		return false;
 	}
 
 	// this only gets called when the local client player receives a magic xp drop.
@@ -330,6 +343,20 @@ public class FightPerformance implements Comparable<FightPerformance>
 		return combinedList;
 	}
 
+	// recalculate both fighters' deserved damage with the current config, e.g. once the ring, ammo or level
+	// settings changed. Returns a Runnable applying the results to both fighters at once, see Fighter::recalculateDamage.
+	public Runnable recalculateDamage(FightLogStore store)
+	{
+		PvpDamageCalc damageCalc = new PvpDamageCalc(this);
+		Runnable applyCompetitor = competitor.recalculateDamage(damageCalc, store);
+		Runnable applyOpponent = opponent.recalculateDamage(damageCalc, store);
+		return () ->
+		{
+			applyCompetitor.run();
+			applyOpponent.run();
+		};
+	}
+
 	// only count the fight as started if the competitor attacked, not the enemy because
 	// the person the competitor clicked on might be attacking someone else
 	public boolean fightStarted()
@@ -472,6 +499,41 @@ public class FightPerformance implements Comparable<FightPerformance>
 			falseSurround  + strToSurround + falseSurround;
 	}
 
+	// stable 64-bit hash of the fight's content (FNV-1a over both fighter names, the lastFightTime and
+	// every fight log entry's tick), used to recognize the same fight when it is imported again.
+	// It is cached after the first call, which should be done while the fight log entries are still
+	// in memory, as it otherwise pages them back in.
+	public long getContentHash()
+	{
+		if (contentHashComputed) { return contentHash; }
+
+		long hash = OFFSET_BASIS;
+		hash = hashFighter(hash, competitor);
+		hash = hashFighter(hash, opponent);
+		hash = hashLong(hash, lastFightTime);
+		contentHash = hash;
+		contentHashComputed = true;
+		return hash;
+	}
+
+	private static long hashFighter(long hash, Fighter fighter)
+	{
+		if (fighter == null) { return hashLong(hash, 0); }
+
+		hash = hashString(hash, fighter.getName());
+
+		ArrayList<FightLogEntry> fightLogEntries = fighter.getFightLogEntries();
+		if (fightLogEntries != null)
+		{
+			for (FightLogEntry entry : fightLogEntries)
+			{
+				hash = hashLong(hash, entry.getTick());
+			}
+			hash = hashLong(hash, fightLogEntries.size());
+		}
+		return hash;
+	}
+
 	// use to sort by last fight time, to sort fights by date/time.
 	@Override
 	public int compareTo(FightPerformance o)
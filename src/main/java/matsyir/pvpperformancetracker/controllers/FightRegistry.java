@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.Getter;
+import matsyir.pvpperformancetracker.models.CombatLevels;
+import net.runelite.api.Player;
+
+// Fights currently being tracked for the local player, one per opponent, so several opponents can be tracked
+// at once in multi-combat. Fights are keyed by opponent name, which lets events be routed to their fight
+// with a single lookup no matter how many opponents are being tracked.
+public class FightRegistry
+{
+	private final Map<String, FightPerformance> fights = new HashMap<>();
+
+	// the fight with the most recent attack, from either side. This is the fight shown on the overlay.
+	@Getter
+	private FightPerformance currentFight;
+	// the fight whose opponent most recently attacked the local player: hitsplats on the local player
+	// don't say who dealt them, so they are assumed to come from this opponent.
+	private FightPerformance lastAttackedByFight;
+
+	public boolean isEmpty()
+	{
+		return fights.isEmpty();
+	}
+
+	public Collection<FightPerformance> getFights()
+	{
+		return fights.values();
+	}
+
+	public FightPerformance getFight(String opponentName)
+	{
+		return opponentName == null ? null : fights.get(opponentName);
+	}
+
+	// start tracking a fight against the opponent, unless one is already tracked. Returns the opponent's fight.
+	public FightPerformance startFight(Player localPlayer, Player opponent)
+	{
+		FightPerformance fight = fights.get(opponent.getName());
+		if (fight == null)
+		{
+			fight = new FightPerformance(localPlayer, opponent);
+			fights.put(opponent.getName(), fight);
+			if (currentFight == null)
+			{
+				currentFight = fight;
+			}
+		}
+		return fight;
+	}
+
+	// the fight an event on the player belongs to: the local player's events belong to the fight against the
+	// player they are interacting with, and any other player's events belong to the fight against them.
+	public FightPerformance getFightFor(Player player, Player localPlayer)
+	{
+		if (player != localPlayer)
+		{
+			return getFight(player.getName());
+		}
+
+		return player.getInteracting() instanceof Player ? getFight(player.getInteracting().getName()) : null;
+	}
+
+	// the fight a hitsplat on the player belongs to.
+	public FightPerformance getFightForHitsplat(Player player, Player localPlayer)
+	{
+		if (player != localPlayer)
+		{
+			return getFight(player.getName());
+		}
+
+		if (lastAttackedByFight != null)
+		{
+			return lastAttackedByFight;
+		}
+
+		FightPerformance fight = getFightFor(player, localPlayer);
+		return fight != null ? fight : currentFight;
+	}
+
+	// check the player's animation for an attack in the fight it belongs to, if any.
+	public void checkForAttackAnimations(Player player, Player localPlayer, CombatLevels competitorLevels)
+	{
+		FightPerformance fight = getFightFor(player, localPlayer);
+		if (fight == null || !fight.checkForAttackAnimations(player, competitorLevels)) { return; }
+
+		currentFight = fight;
+		if (player != localPlayer)
+		{
+			lastAttackedByFight = fight;
+		}
+	}
+
+	// stop tracking every fight that is over, passing the ones that actually started to the finishedFightConsumer.
+	public void stopFightsIfOver(Consumer<FightPerformance> finishedFightConsumer)
+	{
+		boolean removed = false;
+		Iterator<FightPerformance> it = fights.values().iterator();
+		while (it.hasNext())
+		{
+			FightPerformance fight = it.next();
+			if (!fight.isFightOver()) { continue; }
+
+			it.remove();
+			removed = true;
+			if (fight.fightStarted())
+			{
+				finishedFightConsumer.accept(fight);
+			}
+		}
+
+		if (!removed) { return; }
+
+		if (!isTracked(lastAttackedByFight))
+		{
+			lastAttackedByFight = null;
+		}
+		if (!isTracked(currentFight))
+		{
+			currentFight = getMostRecentFight();
+		}
+	}
+
+	public void clear()
+	{
+		fights.clear();
+		currentFight = null;
+		lastAttackedByFight = null;
+	}
+
+	private boolean isTracked(FightPerformance fight)
+	{
+		return fight != null && fights.get(fight.getOpponent().getName()) == fight;
+	}
+
+	// the fight with the latest fight time, preferring fights that started.
+	private FightPerformance getMostRecentFight()
+	{
+		FightPerformance mostRecent = null;
+		for (FightPerformance fight : fights.values())
+		{
+			if (mostRecent == null || (fight.fightStarted() && !mostRecent.fightStarted()) ||
+				(fight.fightStarted() == mostRecent.fightStarted() && fight.lastFightTime > mostRecent.lastFightTime))
+			{
+				mostRecent = fight;
+			}
+		}
+		return mostRecent;
+	}
+}
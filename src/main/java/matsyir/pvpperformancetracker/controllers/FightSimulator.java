@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import lombok.Getter;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+import matsyir.pvpperformancetracker.models.HitDistribution;
+
+// Monte-Carlo simulation of a fight: replays both fighters' logged attacks in order many times, rolling each
+// attack's damage from its hit distribution, to estimate how likely each side was to win and how their HP was
+// expected to go. Healing isn't logged per attack, so HP only goes down, starting from the fight type's HP level.
+// Iterations are split into batches that run on a parallel stream, each with its own SplittableRandom.
+public class FightSimulator
+{
+	public static final int DEFAULT_ITERATIONS = 1_000_000;
+	private static final int ITERATIONS_PER_BATCH = 10_000;
+
+	private final int startingHp;
+	// the logged attacks of both fighters, sorted by tick.
+	private final int[] ticks;
+	private final boolean[] competitorAttacks;
+	private final AttackSampler[] attacks;
+
+	public FightSimulator(FightPerformance fight)
+	{
+		int hp = fight.fightType.getCombatLevelsForType().hp;
+		startingHp = hp > 0 ? hp : 99;
+
+		List<FightLogEntry> competitorEntries = getFullEntries(fight.getCompetitor());
+		List<FightLogEntry> opponentEntries = getFullEntries(fight.getOpponent());
+
+		PvpDamageCalc damageCalc = new PvpDamageCalc(fight);
+		int attackCount = competitorEntries.size() + opponentEntries.size();
+		ticks = new int[attackCount];
+		competitorAttacks = new boolean[attackCount];
+		attacks = new AttackSampler[attackCount];
+		// both fighters' entries are already in the order they were logged, so merge them by tick.
+		for (int i = 0, c = 0, o = 0; i < attackCount; i++)
+		{
+			boolean competitorAttack = o >= opponentEntries.size() ||
+				(c < competitorEntries.size() && competitorEntries.get(c).getTick() <= opponentEntries.get(o).getTick());
+			FightLogEntry entry = competitorAttack ? competitorEntries.get(c++) : opponentEntries.get(o++);
+			ticks[i] = entry.getTick();
+			competitorAttacks[i] = competitorAttack;
+			attacks[i] = new AttackSampler(damageCalc.recalculateDamage(entry).getHitDistribution());
+		}
+	}
+
+	// a fight of the given attacks, sorted by tick, each dealing damage from its hit distribution.
+	FightSimulator(int startingHp, int[] ticks, boolean[] competitorAttacks, HitDistribution[] hitDistributions)
+	{
+		this.startingHp = startingHp;
+		this.ticks = ticks;
+		this.competitorAttacks = competitorAttacks;
+		attacks = new AttackSampler[hitDistributions.length];
+		for (int i = 0; i < hitDistributions.length; i++)
+		{
+			attacks[i] = new AttackSampler(hitDistributions[i]);
+		}
+	}
+
+	private static List<FightLogEntry> getFullEntries(Fighter fighter)
+	{
+		List<FightLogEntry> entries = new ArrayList<>();
+		List<FightLogEntry> fighterEntries = fighter.getFightLogEntries();
+		if (fighterEntries == null) { return entries; }
+
+		for (FightLogEntry entry : fighterEntries)
+		{
+			if (entry.isFullEntry())
+			{
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+	public int getAttackCount()
+	{
+		return attacks.length;
+	}
+
+	public Result simulate(int iterations, long seed)
+	{
+		int batchCount = (iterations + ITERATIONS_PER_BATCH - 1) / ITERATIONS_PER_BATCH;
+		// split every batch's random up front, since SplittableRandom itself isn't thread safe.
+		SplittableRandom random = new SplittableRandom(seed);
+		SplittableRandom[] batchRandoms = new SplittableRandom[batchCount];
+		for (int i = 0; i < batchCount; i++)
+		{
+			batchRandoms[i] = random.split();
+		}
+
+		Batch total = IntStream.range(0, batchCount).parallel()
+			.mapToObj(i -> simulateBatch(batchRandoms[i], Math.min(ITERATIONS_PER_BATCH, iterations - i * ITERATIONS_PER_BATCH)))
+			.reduce(Batch::add)
+			.orElseGet(() -> new Batch(attacks.length));
+
+		double[] competitorHp = new double[attacks.length];
+		double[] opponentHp = new double[attacks.length];
+		for (int i = 0; i < attacks.length; i++)
+		{
+			competitorHp[i] = (double) total.competitorHpTotals[i] / iterations;
+			opponentHp[i] = (double) total.opponentHpTotals[i] / iterations;
+		}
+
+		return new Result(iterations, (double) total.competitorWins / iterations,
+			(double) total.opponentWins / iterations, ticks.clone(), competitorHp, opponentHp);
+	}
+
+	private Batch simulateBatch(SplittableRandom random, int iterations)
+	{
+		Batch batch = new Batch(attacks.length);
+		// HP left when an iteration ended early, added to every later attack's totals once the batch is done
+		// rather than looping over the attacks that no longer happen.
+		long[] competitorHpAfterDeath = new long[attacks.length + 1];
+		long[] opponentHpAfterDeath = new long[attacks.length + 1];
+		for (int iteration = 0; iteration < iterations; iteration++)
+		{
+			int competitorHp = startingHp;
+			int opponentHp = startingHp;
+			for (int i = 0; i < attacks.length; i++)
+			{
+				int damage = attacks[i].sample(random);
+				if (competitorAttacks[i])
+				{
+					opponentHp = Math.max(0, opponentHp - damage);
+				}
+				else
+				{
+					competitorHp = Math.max(0, competitorHp - damage);
+				}
+
+				batch.competitorHpTotals[i] += competitorHp;
+				batch.opponentHpTotals[i] += opponentHp;
+
+				// once either fighter died, the remaining attacks no longer happen.
+				if (competitorHp == 0 || opponentHp == 0)
+				{
+					if (opponentHp == 0)
+					{
+						batch.competitorWins++;
+					}
+					else
+					{
+						batch.opponentWins++;
+					}
+					competitorHpAfterDeath[i + 1] += competitorHp;
+					opponentHpAfterDeath[i + 1] += opponentHp;
+					break;
+				}
+			}
+		}
+
+		long competitorHp = 0, opponentHp = 0;
+		for (int i = 0; i < attacks.length; i++)
+		{
+			competitorHp += competitorHpAfterDeath[i];
+			opponentHp += opponentHpAfterDeath[i];
+			batch.competitorHpTotals[i] += competitorHp;
+			batch.opponentHpTotals[i] += opponentHp;
+		}
+		return batch;
+	}
+
+	// totals of a batch of iterations.
+	private static class Batch
+	{
+		private long competitorWins;
+		private long opponentWins;
+		private final long[] competitorHpTotals;
+		private final long[] opponentHpTotals;
+
+		private Batch(int attackCount)
+		{
+			competitorHpTotals = new long[attackCount];
+			opponentHpTotals = new long[attackCount];
+		}
+
+		private Batch add(Batch other)
+		{
+			competitorWins += other.competitorWins;
+			opponentWins += other.opponentWins;
+			for (int i = 0; i < competitorHpTotals.length; i++)
+			{
+				competitorHpTotals[i] += other.competitorHpTotals[i];
+				opponentHpTotals[i] += other.opponentHpTotals[i];
+			}
+			return this;
+		}
+	}
+
+	// samples damage from a hit distribution in constant time, using Vose's alias method.
+	static class AttackSampler
+	{
+		private final double[] chances;
+		private final int[] aliases;
+
+		AttackSampler(HitDistribution distribution)
+		{
+			int n = distribution.getMaxDamage() + 1;
+			chances = new double[n];
+			aliases = new int[n];
+
+			double[] scaled = new double[n];
+			int[] small = new int[n], large = new int[n];
+			int smallCount = 0, largeCount = 0;
+			for (int i = 0; i < n; i++)
+			{
+				scaled[i] = distribution.getProbability(i) * n;
+				if (scaled[i] < 1)
+				{
+					small[smallCount++] = i;
+				}
+				else
+				{
+					large[largeCount++] = i;
+				}
+			}
+
+			while (smallCount > 0 && largeCount > 0)
+			{
+				int less = small[--smallCount];
+				int more = large[--largeCount];
+				chances[less] = scaled[less];
+				aliases[less] = more;
+				scaled[more] = scaled[more] + scaled[less] - 1;
+				if (scaled[more] < 1)
+				{
+					small[smallCount++] = more;
+				}
+				else
+				{
+					large[largeCount++] = more;
+				}
+			}
+			// anything left over is only off from 1 due to rounding errors.
+			while (largeCount > 0)
+			{
+				chances[large[--largeCount]] = 1;
+			}
+			while (smallCount > 0)
+			{
+				chances[small[--smallCount]] = 1;
+			}
+		}
+
+		// a single random long is used for both the column (high 32 bits) and the coin flip (low 32 bits).
+		int sample(SplittableRandom random)
+		{
+			long bits = random.nextLong();
+			int i = (int) (((bits >>> 32) * chances.length) >>> 32);
+			return (bits & 0xFFFFFFFFL) * 0x1.0p-32 < chances[i] ? i : aliases[i];
+		}
+	}
+
+	@Getter
+	public static class Result
+	{
+		private final int iterations;
+		private final double competitorWinChance;
+		private final double opponentWinChance;
+		// expected HP of each fighter after each attack, in the order of the attacks' ticks.
+		private final int[] ticks;
+		private final double[] competitorHp;
+		private final double[] opponentHp;
+
+		private Result(int iterations, double competitorWinChance, double opponentWinChance, int[] ticks,
+			double[] competitorHp, double[] opponentHp)
+		{
+			this.iterations = iterations;
+			this.competitorWinChance = competitorWinChance;
+			this.opponentWinChance = opponentWinChance;
+			this.ticks = ticks;
+			this.competitorHp = competitorHp;
+			this.opponentHp = opponentHp;
+		}
+
+		// chance that neither fighter died.
+		public double getNoDeathChance()
+		{
+			return Math.max(0, 1 - competitorWinChance - opponentWinChance);
+		}
+	}
+}
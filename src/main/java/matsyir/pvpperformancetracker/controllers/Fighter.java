@@ -24,22 +24,34 @@
  */
 package matsyir.pvpperformancetracker.controllers;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.math.RoundingMode;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import matsyir.pvpperformancetracker.FightLogStore;
 import matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin;
-import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.fixItemId;
 import matsyir.pvpperformancetracker.models.AnimationData;
 import matsyir.pvpperformancetracker.models.CombatLevels;
+import matsyir.pvpperformancetracker.models.ConfigSnapshot;
+import matsyir.pvpperformancetracker.models.DamageResult;
 import matsyir.pvpperformancetracker.models.EquipmentData;
 import matsyir.pvpperformancetracker.models.FightLogEntry;
+import matsyir.pvpperformancetracker.models.HitDistribution;
 import net.runelite.api.GraphicID;
 import net.runelite.api.Player;
 import net.runelite.api.kit.KitType;
@@ -107,6 +119,13 @@ class Fighter
 	@Expose
 	@SerializedName("l")
 	private ArrayList<FightLogEntry> fightLogEntries;
+	// once paged out to the FightLogStore, fightLogEntries is null and the entries are read from its page,
+	// which only keeps them in memory while they're recently used.
+	private FightLogStore.Page fightLogPage;
+
+	// cached distribution of the total damage of all logged attacks, see getDeservedDamageDistribution.
+	@Getter(AccessLevel.NONE)
+	private HitDistribution deservedDamageDistribution;
 
 	private PvpDamageCalc pvpDamageCalc;
 	private int lastGhostBarrageCheckedTick = -1;
@@ -168,9 +187,177 @@ class Fighter
 
 	// Fighter for AnalyzedFightPerformance
 	public Fighter(FightPerformance fight, String name)
+	{
+		this(fight, name, CONFIG_SNAPSHOT);
+	}
+
+	// Fighter for AnalyzedFightPerformance, calculating its attacks with the given config snapshot's settings.
+	Fighter(FightPerformance fight, String name, ConfigSnapshot config)
 	{
 		this(name);
-		pvpDamageCalc = new PvpDamageCalc(fight);
+		pvpDamageCalc = new PvpDamageCalc(fight, config);
+	}
+
+	// Fighter decoded from the binary fight history format, see FightHistoryCodec
+	public Fighter(String name, int attackCount, int offPraySuccessCount, double deservedDamage, int damageDealt,
+		int totalMagicAttackCount, int magicHitCount, double magicHitCountDeserved, int offensivePraySuccessCount,
+		int ghostBarrageCount, double ghostBarrageDeservedDamage, int hpHealed, boolean dead,
+		ArrayList<FightLogEntry> fightLogEntries, FightLogStore.Page fightLogPage)
+	{
+		player = null;
+		this.name = name;
+		this.attackCount = attackCount;
+		this.offPraySuccessCount = offPraySuccessCount;
+		this.deservedDamage = deservedDamage;
+		this.damageDealt = damageDealt;
+		this.totalMagicAttackCount = totalMagicAttackCount;
+		this.magicHitCount = magicHitCount;
+		this.magicHitCountDeserved = magicHitCountDeserved;
+		this.offensivePraySuccessCount = offensivePraySuccessCount;
+		this.ghostBarrageCount = ghostBarrageCount;
+		this.ghostBarrageDeservedDamage = ghostBarrageDeservedDamage;
+		this.hpHealed = hpHealed;
+		this.dead = dead;
+		pvpDamageCalc = null;
+		this.fightLogEntries = fightLogEntries;
+		this.fightLogPage = fightLogPage;
+	}
+
+	// copy of this Fighter's serialized stats, holding the given fight log entries.
+	private synchronized Fighter copyWithFightLogEntries(ArrayList<FightLogEntry> entries)
+	{
+		return new Fighter(name, attackCount, offPraySuccessCount, deservedDamage, damageDealt, totalMagicAttackCount,
+			magicHitCount, magicHitCountDeserved, offensivePraySuccessCount, ghostBarrageCount,
+			ghostBarrageDeservedDamage, hpHealed, dead, entries, null);
+	}
+
+	// Gson adapter that serializes paged out fight log entries as if the Fighter still held them,
+	// so saving and exporting fights is unaffected by paging. A copy holding the entries is serialized,
+	// as the Fighter itself can be in use on other threads.
+	public static final TypeAdapterFactory PAGED_FIGHT_LOG_ADAPTER_FACTORY = new TypeAdapterFactory()
+	{
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+		{
+			if (type.getRawType() != Fighter.class) { return null; }
+
+			final TypeAdapter<Fighter> delegate = gson.getDelegateAdapter(this, (TypeToken<Fighter>)type);
+			return (TypeAdapter<T>)new TypeAdapter<Fighter>()
+			{
+				@Override
+				public void write(JsonWriter out, Fighter fighter) throws IOException
+				{
+					if (fighter == null || !fighter.isFightLogPagedOut())
+					{
+						delegate.write(out, fighter);
+						return;
+					}
+
+					delegate.write(out, fighter.copyWithFightLogEntries(fighter.getFightLogEntries()));
+				}
+
+				@Override
+				public Fighter read(JsonReader in) throws IOException
+				{
+					return delegate.read(in);
+				}
+			};
+		}
+	};
+
+	// returns the fight log entries, reading them back from the FightLogStore if they were paged out.
+	public synchronized ArrayList<FightLogEntry> getFightLogEntries()
+	{
+		if (fightLogEntries != null || fightLogPage == null) { return fightLogEntries; }
+
+		try
+		{
+			return PLUGIN.getFightLogStore().read(fightLogPage);
+		}
+		catch (Exception e)
+		{
+			log.warn("Error while reading paged out fight log entries: " + e.getMessage());
+			return new ArrayList<>();
+		}
+	}
+
+	// page out the fight log entries to the FightLogStore, unless they were read from the binary snapshot, in which
+	// case they can already be read back from it. Only used for finished fights, since paged out entries can't be
+	// added to anymore.
+	public synchronized void pageOutFightLogEntries(FightLogStore store)
+	{
+		if (fightLogEntries == null) { return; }
+
+		if (fightLogPage == null)
+		{
+			fightLogPage = store.pageOut(fightLogEntries, name);
+		}
+		fightLogEntries = null;
+	}
+
+	public synchronized boolean isFightLogPagedOut()
+	{
+		return fightLogEntries == null && fightLogPage != null;
+	}
+
+	// recalculate the deserved damage of every logged attack with the given damage calc, without modifying this
+	// Fighter yet: the returned Runnable applies the results all at once, so the fighter's stats and log entries
+	// are never seen half updated. Can run on any thread. If the fight log was paged out, the new entries are
+	// paged out as well. Ghost barrages aren't logged, so their deserved damage stays as it was.
+	Runnable recalculateDamage(PvpDamageCalc damageCalc, FightLogStore store)
+	{
+		ArrayList<FightLogEntry> entries = getFightLogEntries();
+		if (entries == null) { return () -> {}; }
+
+		final ArrayList<FightLogEntry> newEntries = new ArrayList<>(entries.size());
+		double newDeservedDamage = 0;
+		double newMagicHitCountDeserved = 0;
+		for (FightLogEntry entry : entries)
+		{
+			if (!entry.isFullEntry())
+			{
+				newEntries.add(entry);
+				continue;
+			}
+
+			DamageResult damageResult = damageCalc.recalculateDamage(entry);
+			newDeservedDamage += damageResult.getAverageHit();
+			if (entry.getAnimationData().attackStyle == AnimationData.AttackStyle.MAGIC)
+			{
+				newMagicHitCountDeserved += damageResult.getAccuracy();
+			}
+			newEntries.add(new FightLogEntry(entry, damageResult));
+		}
+
+		FightLogStore.Page newPage = null;
+		if (isFightLogPagedOut())
+		{
+			try
+			{
+				newPage = store.write(newEntries, name);
+			}
+			catch (Exception e)
+			{
+				// the new entries will simply be kept in memory.
+				log.warn("Error ignored while paging out recalculated fight log entries: " + e.getMessage());
+			}
+		}
+
+		final double deservedDamage = newDeservedDamage;
+		final double magicHitCountDeserved = newMagicHitCountDeserved;
+		final FightLogStore.Page fightLogPage = newPage;
+		return () ->
+		{
+			synchronized (this)
+			{
+				this.deservedDamage = deservedDamage;
+				this.magicHitCountDeserved = magicHitCountDeserved;
+				this.deservedDamageDistribution = null;
+				this.fightLogPage = fightLogPage;
+				this.fightLogEntries = fightLogPage != null ? null : newEntries;
+			}
+		};
 	}
 
 	// add an attack to the counters depending if it is successful or not.
@@ -209,7 +396,7 @@ class Fighter
 		// track dragon longsword as VLS if enabled, for dmm practice purposes.
 		// also check if weapon = VLS because the itemId stays as VLS if they don't switch weapons between
 		// attacks, but we still need to update the animationData in case it's actually a dlong.
-		if (CONFIG.dlongIsVls() && weapon == EquipmentData.DRAGON_LONGSWORD || weapon == EquipmentData.VESTAS_LONGSWORD)
+		if (CONFIG_SNAPSHOT.isDlongIsVls() && weapon == EquipmentData.DRAGON_LONGSWORD || weapon == EquipmentData.VESTAS_LONGSWORD)
 		{
 			// have to +512 here because the stat additions later will -512 for real itemIds
 			// modifying attackerItems will modify the actual playerComposition, so future
@@ -218,13 +405,14 @@ class Fighter
 			animationData = animationData.isSpecial ? AnimationData.MELEE_VLS_SPEC : AnimationData.MELEE_SCIM_SLASH;
 		}
 
-		pvpDamageCalc.updateDamageStats(player, opponent, successful, animationData);
-		deservedDamage += pvpDamageCalc.getAverageHit();
+		DamageResult damageResult = pvpDamageCalc.calculateDamage(player, opponent, successful, animationData);
+		deservedDamage += damageResult.getAverageHit();
+		clearDeservedDamageDistribution();
 
 		if (animationData.attackStyle == AnimationData.AttackStyle.MAGIC)
 		{
 			totalMagicAttackCount++;
-			magicHitCountDeserved += pvpDamageCalc.getAccuracy();
+			magicHitCountDeserved += damageResult.getAccuracy();
 
 			if (opponent.getGraphic() != GraphicID.SPLASH)
 			{
@@ -232,8 +420,8 @@ class Fighter
 			}
 		}
 
-		FightLogEntry fightLogEntry = new FightLogEntry(player, opponent, pvpDamageCalc, offensivePray, levels, animationData);
-		if (PvpPerformanceTrackerPlugin.CONFIG.fightLogInChat())
+		FightLogEntry fightLogEntry = new FightLogEntry(player, opponent, damageResult, offensivePray, levels, animationData);
+		if (CONFIG_SNAPSHOT.isFightLogInChat())
 		{
 			PvpPerformanceTrackerPlugin.PLUGIN.sendChatMessage(fightLogEntry.toChatMessage());
 		}
@@ -253,18 +441,57 @@ class Fighter
 			offensivePraySuccessCount++;
 		}
 
-		pvpDamageCalc.updateDamageStats(logEntry, defenderLog);
-		deservedDamage += pvpDamageCalc.getAverageHit();
+		DamageResult damageResult = pvpDamageCalc.calculateDamage(logEntry, defenderLog);
+		deservedDamage += damageResult.getAverageHit();
+		clearDeservedDamageDistribution();
 
 		if (logEntry.getAnimationData().attackStyle == AnimationData.AttackStyle.MAGIC)
 		{
 			totalMagicAttackCount++;
-			magicHitCountDeserved += pvpDamageCalc.getAccuracy();
+			magicHitCountDeserved += damageResult.getAccuracy();
 			// actual magicHitCount is directly added, as it can no longer
 			// be detected and should have been accurate initially.
 		}
 
-		fightLogEntries.add(new FightLogEntry(logEntry, pvpDamageCalc));
+		fightLogEntries.add(new FightLogEntry(logEntry, damageResult));
+	}
+
+	private synchronized void clearDeservedDamageDistribution()
+	{
+		deservedDamageDistribution = null;
+	}
+
+	// distribution of the total damage this fighter could have dealt with its logged attacks, rebuilt from the fight
+	// log by recalculating each attack the same way recalculateDamage does, like the FightSimulator. Its mean can
+	// differ from deservedDamage for fights analyzed with logged levels. Cached until the next attack or
+	// recalculation. Ghost barrages aren't logged, so they aren't included.
+	public synchronized HitDistribution getDeservedDamageDistribution(FightPerformance fight)
+	{
+		if (deservedDamageDistribution != null) { return deservedDamageDistribution; }
+
+		ArrayList<FightLogEntry> entries = getFightLogEntries();
+		ArrayList<HitDistribution> distributions = new ArrayList<>(entries == null ? 0 : entries.size());
+		if (entries != null)
+		{
+			PvpDamageCalc damageCalc = new PvpDamageCalc(fight);
+			for (FightLogEntry entry : entries)
+			{
+				if (!entry.isFullEntry()) { continue; }
+
+				distributions.add(damageCalc.recalculateDamage(entry).getHitDistribution());
+			}
+		}
+
+		deservedDamageDistribution = HitDistribution.sum(distributions);
+		return deservedDamageDistribution;
+	}
+
+	// percentile (0-100) of the damage actually dealt within the deserved damage distribution: 50 is as expected,
+	// higher is luckier. Ghost barrage damage is part of the damage dealt, so their deserved damage is taken out.
+	public double getDamageLuckPercentile(FightPerformance fight)
+	{
+		int attackDamageDealt = damageDealt - (int) Math.round(ghostBarrageDeservedDamage);
+		return getDeservedDamageDistribution(fight).getPercentile(attackDamageDealt);
 	}
 
 	public void addGhostBarrage(boolean successful, Player opponent, AnimationData animationData, int offensivePray, CombatLevels levels)
@@ -276,10 +503,10 @@ class Fighter
 		}
 		lastGhostBarrageCheckedTick = currentTick;
 
-		pvpDamageCalc.updateDamageStats(player, opponent, successful, animationData);
+		DamageResult damageResult = pvpDamageCalc.calculateDamage(player, opponent, successful, animationData);
 
 		ghostBarrageCount++;
-		ghostBarrageDeservedDamage += pvpDamageCalc.getAverageHit();
+		ghostBarrageDeservedDamage += damageResult.getAverageHit();
 
 		// TODO: Create separate FightLog array for ghost barrages and include those in fight log table
 		// ^^^ also so they could be used in fight analysis/merge. Unused params will be used for this
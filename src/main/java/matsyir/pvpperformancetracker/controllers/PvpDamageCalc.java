@@ -25,22 +25,31 @@
  */
 package matsyir.pvpperformancetracker.controllers;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
 import matsyir.pvpperformancetracker.models.FightLogEntry;
 import matsyir.pvpperformancetracker.models.AnimationData;
+import matsyir.pvpperformancetracker.models.AttackContext;
+import matsyir.pvpperformancetracker.models.DamageResult;
 import static matsyir.pvpperformancetracker.models.AnimationData.AttackStyle;
 import static matsyir.pvpperformancetracker.models.FightLogEntry.nf;
 import static matsyir.pvpperformancetracker.models.AnimationData.MAGIC_VOLATILE_NIGHTMARE_STAFF_SPEC;
-import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.fixItemId;
 import matsyir.pvpperformancetracker.models.EquipmentData;
 import matsyir.pvpperformancetracker.models.EquipmentData.VoidStyle;
+import matsyir.pvpperformancetracker.models.HitDistribution;
 import matsyir.pvpperformancetracker.models.CombatLevels;
+import matsyir.pvpperformancetracker.models.ConfigSnapshot;
 import matsyir.pvpperformancetracker.models.RangeAmmoData;
 import matsyir.pvpperformancetracker.models.RingData;
+import matsyir.pvpperformancetracker.models.SpecialAttackData;
+import matsyir.pvpperformancetracker.models.SpecialAttackData.HitType;
 import net.runelite.api.SpriteID;
 import net.runelite.api.kit.KitType;
 import net.runelite.http.api.item.ItemEquipmentStats;
@@ -49,8 +58,8 @@ import org.apache.commons.lang3.ArrayUtils;
 import net.runelite.api.Player;
 
 // Pvp damage calculations
-// call updateDamageStats(...) with required parameters, and retrieve results by using the field getters
-// for averageHit, accuracy, maxHit, and minHit.
+// call calculateDamage(...) with required parameters, which returns the averageHit, accuracy, maxHit, and minHit
+// as a DamageResult. updateDamageStats(...) does the same but keeps the results in this instance, for the field getters.
 //
 // combat formulas source thread QFC: 317,318,461,66138854
 // osrs wiki was also used a lot
@@ -78,34 +87,10 @@ public class PvpDamageCalc
 	private static final double AUGURY_MAGEDEF_PRAYER_MODIFIER = 1.25; // assume we never use augury during defence for now (unless merging stats).
 	private static final double RIGOUR_DEF_PRAYER_MODIFIER = 1.25;
 
-	private static final double BALLISTA_SPEC_ACCURACY_MODIFIER = 1.25;
-	private static final double BALLISTA_SPEC_DMG_MODIFIER = 1.25;
-
-	private static final int ACB_SPEC_ACCURACY_MODIFIER = 2;
-
 	private static final int DBOW_DMG_MODIFIER = 2;
-	private static final int DBOW_SPEC_DMG_MODIFIER = 3;
-	private static final int DBOW_SPEC_MIN_HIT = 16;
-
-	private static final double DDS_SPEC_ACCURACY_MODIFIER = 1.25;
-	private static final double DDS_SPEC_DMG_MODIFIER = 2.3;
-
-	private static final int ARMA_GS_SPEC_ACCURACY_MODIFIER = 2;
-	private static final double ARMA_GS_SPEC_DMG_MODIFIER = 1.375;
-	private static final int ANCIENT_GS_SPEC_ACCURACY_MODIFIER = 2;
-	private static final double FANG_SPEC_ACCURACY_MODIFIER = 1.5;
-	private static final double ANCIENT_GS_SPEC_DMG_MODIFIER = 1.1;
-	private static final int ANCIENT_GS_FIXED_DAMAGE = 25;
-
-	private static final double VLS_SPEC_DMG_MODIFIER = 1.2;
-	private static final double VLS_SPEC_MIN_DMG_MODIFIER = .2;
-	private static final double VLS_SPEC_DEFENCE_SCALE = .25;
-	private static final double SWH_SPEC_DMG_MODIFIER = 1.25;
-	private static final double SWH_SPEC_MIN_DMG_MODIFIER = .25;
-	private static final double DWH_SPEC_DMG_MODIFIER = 1.5;
-	private static final double VOIDWAKER_SPEC_DMG_MODIFIER = 1.5;
-	private static final double VOIDWAKER_SPEC_MIN_DMG_MODIFIER = .5;
-	private static final double VOIDWAKER_FIXED_ACCURACY = 1;
+	private static final double FANG_DMG_MODIFIER = 0.85; // only for regular attacks, the fang's special attack uses the full max hit
+
+	// special attack modifiers are defined by SpecialAttackData.
 
 
 	// 0.975x is a simplified average brimstone mage def formula, where x = opponent's mage def
@@ -116,7 +101,14 @@ public class PvpDamageCalc
 	public static final double TOME_OF_FIRE_DMG_MODIFIER = 1.5;
 	public static final double VOLATILE_NIGHTMARE_STAFF_ACC_MODIFIER = 0.5;
 
+	// gear profiles by gear, ring & ammo settings, since players only swap between a few loadouts during a fight
+	// and every attack needs the profiles of both players. Cached profiles are shared, so they must not be modified.
+	private static final Cache<GearKey, GearProfile> GEAR_PROFILE_CACHE = CacheBuilder.newBuilder()
+		.maximumSize(512)
+		.build();
 
+
+	// results of the last updateDamageStats call, for the adapters below.
 	@Getter
 	private double averageHit = 0;
 	@Getter
@@ -126,234 +118,320 @@ public class PvpDamageCalc
 	@Getter
 	private int maxHit = 0;
 
-	private CombatLevels attackerLevels;
-	private CombatLevels defenderLevels;
-
-	private RingData ringUsed;
-	boolean isLmsFight;
+	// fight-wide settings, which never change after construction, so one instance can be shared between threads
+	// as long as only the calculateDamage functions are used.
+	private final CombatLevels fightTypeLevels;
+	private final RingData ringUsed;
+	private final boolean isLmsFight;
+	private final ConfigSnapshot config;
 
 	public PvpDamageCalc(FightPerformance relatedFight)
 	{
+		this(relatedFight, CONFIG_SNAPSHOT);
+	}
+
+	// calculate damage using the given config snapshot's settings rather than the current ones.
+	public PvpDamageCalc(FightPerformance relatedFight, ConfigSnapshot config)
+	{
+		this.config = config;
 		isLmsFight = relatedFight.fightType.isLmsFight();
-		this.attackerLevels = relatedFight.fightType.getCombatLevelsForType();
-		this.defenderLevels = relatedFight.fightType.getCombatLevelsForType();
+		this.fightTypeLevels = relatedFight.fightType.getCombatLevelsForType(config);
 
-		this.ringUsed = isLmsFight ? RingData.BERSERKER_RING : CONFIG.ringChoice();
+		this.ringUsed = isLmsFight ? RingData.BERSERKER_RING : config.getRingChoice();
 	}
 
-	// main function used to update stats during an ongoing fight
+	// calculate an attack during an ongoing fight, using the fight type's combat levels for both players.
+	public DamageResult calculateDamage(Player attacker, Player defender, boolean success, AnimationData animationData)
+	{
+		return calculateDamage(new AttackContext(attacker.getPlayerComposition().getEquipmentIds(),
+			defender.getPlayerComposition().getEquipmentIds(), fightTypeLevels, fightTypeLevels, animationData,
+			success, true, false, ringUsed, ringUsed, isLmsFight, config));
+	}
+
+	// calculate an attack from the fight log (fight analysis/fight merge), using the logged combat levels.
+	// Gear bonuses include the configured ring even in LMS, where the berserker ring is only used for its effects.
+	public DamageResult calculateDamage(FightLogEntry atkLog, FightLogEntry defenderLog)
+	{
+		AnimationData animationData = atkLog.getAnimationData();
+		return calculateDamage(new AttackContext(atkLog.getAttackerGear(), atkLog.getDefenderGear(),
+			atkLog.getAttackerLevels(), defenderLog.getAttackerLevels(), animationData, atkLog.success(),
+			animationData.attackStyle.isUsingSuccessfulOffensivePray(atkLog.getAttackerOffensivePray()),
+			defenderLog.getAttackerOffensivePray() == SpriteID.PRAYER_AUGURY, ringUsed, config.getRingChoice(),
+			isLmsFight, config));
+	}
+
+	// recalculate an attack that was logged during an ongoing fight, the same way calculateDamage(Player...) did.
+	// Used to update saved fights once the ring, ammo or level settings changed.
+	public DamageResult recalculateDamage(FightLogEntry atkLog)
+	{
+		return calculateDamage(new AttackContext(atkLog.getAttackerGear(), atkLog.getDefenderGear(), fightTypeLevels,
+			fightTypeLevels, atkLog.getAnimationData(), atkLog.success(), true, false, ringUsed, ringUsed, isLmsFight,
+			config));
+	}
+
+	// main function used to update stats during an ongoing fight. Prefer calculateDamage, which doesn't
+	// store its result in this instance.
 	public void updateDamageStats(Player attacker, Player defender, boolean success, AnimationData animationData)
 	{
 		// shouldn't be possible, but just in case
 		if (attacker == null || defender == null) { return; }
 
-		averageHit = 0;
-		accuracy = 0;
-		minHit = 0;
-		maxHit = 0;
+		setLastResult(calculateDamage(attacker, defender, success, animationData));
+	}
 
-		int[] attackerItems = attacker.getPlayerComposition().getEquipmentIds();
-		int[] defenderItems = defender.getPlayerComposition().getEquipmentIds();
+	// secondary function used to analyze fights from the fight log (fight analysis/fight merge). Prefer
+	// calculateDamage, which doesn't store its result in this instance.
+	public void updateDamageStats(FightLogEntry atkLog, FightLogEntry defenderLog)
+	{
+		setLastResult(calculateDamage(atkLog, defenderLog));
+	}
 
-		EquipmentData weapon = EquipmentData.fromId(fixItemId(attackerItems[KitType.WEAPON.getIndex()]));
+	private void setLastResult(DamageResult result)
+	{
+		averageHit = result.getAverageHit();
+		accuracy = result.getAccuracy();
+		minHit = result.getMinHit();
+		maxHit = result.getMaxHit();
+	}
 
-		int[] playerStats = this.calculateBonusesWithRing(attackerItems);
-		int[] opponentStats = this.calculateBonusesWithRing(defenderItems);
+	// calculate the average hit, accuracy and min/max hits of a single attack. Has no side effects, so it can
+	// safely be used from any thread.
+	public static DamageResult calculateDamage(AttackContext context)
+	{
+		AnimationData animationData = context.getAnimationData();
+		boolean success = context.isSuccess();
+
+		GearProfile attackerGear = getGearProfile(context.getAttackerGear(), context.getBonusRing(), context.isLmsFight(), context.getConfig());
+		GearProfile defenderGear = getGearProfile(context.getDefenderGear(), context.getBonusRing(), context.isLmsFight(), context.getConfig());
+		EquipmentData weapon = attackerGear.weapon;
+
+		int[] playerStats = attackerGear.bonuses;
+		int[] opponentStats = defenderGear.bonuses;
 		AnimationData.AttackStyle attackStyle = animationData.attackStyle; // basic style: stab/slash/crush/ranged/magic
 
 		// Special attack used will be determined based on the currently used weapon, if its special attack has been implemented.
 		// the animation just serves to tell if they actually did a special attack animation, since some animations
 		// are used for multiple special attacks.
 		boolean isSpecial = animationData.isSpecial;
-		VoidStyle voidStyle = VoidStyle.getVoidStyleFor(attacker.getPlayerComposition().getEquipmentIds());
 
+		int maxHit = 0;
+		double accuracy = 0;
 		if (attackStyle.isMelee() || animationData == AnimationData.MELEE_VOIDWAKER_SPEC)
 		{
-			getMeleeMaxHit(playerStats[STRENGTH_BONUS], isSpecial, weapon, voidStyle, true);
-			getMeleeAccuracy(playerStats, opponentStats, attackStyle, isSpecial, weapon, voidStyle, true);
+			maxHit = getMeleeMaxHit(context, attackerGear, isSpecial);
+			accuracy = getMeleeAccuracy(context, attackerGear, opponentStats, attackStyle, isSpecial);
 		}
 		else if (attackStyle == AttackStyle.RANGED)
 		{
-			getRangedMaxHit(playerStats[RANGE_STRENGTH], isSpecial, weapon, voidStyle, true, attackerItems);
-			getRangeAccuracy(playerStats[RANGE_ATTACK], opponentStats[RANGE_DEF], isSpecial, weapon, voidStyle, true, attackerItems);
+			maxHit = getRangedMaxHit(context, attackerGear, isSpecial);
+			accuracy = getRangeAccuracy(context, attackerGear, opponentStats[RANGE_DEF], isSpecial);
 		}
 		// this should always be true at this point, but just in case. unknown animation styles won't
 		// make it here, they should be stopped in FightPerformance::checkForAttackAnimations
 		else if (attackStyle == AttackStyle.MAGIC)
 		{
-			EquipmentData shield = EquipmentData.fromId(fixItemId(attackerItems[KitType.SHIELD.getIndex()]));
-			getMagicMaxHit(shield, playerStats[MAGIC_DAMAGE], animationData, weapon, voidStyle, true);
-			getMagicAccuracy(playerStats[MAGIC_ATTACK], opponentStats[MAGIC_DEF], weapon, animationData, voidStyle, true, false);
+			maxHit = getMagicMaxHit(attackerGear, animationData);
+			accuracy = getMagicAccuracy(context, attackerGear, opponentStats[MAGIC_DEF]);
 		}
 
-		getAverageHit(success, weapon, isSpecial);
+		DamageResult result = getAverageHit(success, attackerGear.special, isSpecial, accuracy, maxHit);
+		result = new DamageResult(result.getAverageHit(), result.getAccuracy(), result.getMinHit(),
+			(int)(result.getMaxHit() * (success ? 1 : UNSUCCESSFUL_PRAY_DMG_MODIFIER)), result.getHitDistribution());
 
-		maxHit = (int)(maxHit * (success ? 1 : UNSUCCESSFUL_PRAY_DMG_MODIFIER));
+		if (log.isDebugEnabled())
+		{
+			log.debug("attackStyle: " + attackStyle.toString() + ", avgHit: " + nf.format(result.getAverageHit()) +
+				", acc: " + nf.format(result.getAccuracy()) +
+				"\nattacker stats: " + Arrays.toString(playerStats) +
+				"\ndefender stats: " + Arrays.toString(opponentStats));
+		}
 
-		log.debug("attackStyle: " + attackStyle.toString() + ", avgHit: " + nf.format(averageHit) + ", acc: " + nf.format(accuracy) +
-			"\nattacker(" + attacker.getName() + ")stats: " + Arrays.toString(playerStats) +
-			"\ndefender(" +  defender.getName() + ")stats: " + Arrays.toString(opponentStats));
+		return result;
 	}
 
-	// secondary function used to analyze fights from the fight log (fight analysis/fight merge)
-	public void updateDamageStats(FightLogEntry atkLog, FightLogEntry defenderLog)
+	// final average hit based on the accuracy & max hit. Some special attacks also adjust the accuracy & max hit,
+	// or add a min hit, so all of them are returned.
+	private static DamageResult getAverageHit(boolean success, SpecialAttackData special, boolean usingSpec, double accuracy, int maxHit)
 	{
-		this.attackerLevels = atkLog.getAttackerLevels();
-		this.defenderLevels = defenderLog.getAttackerLevels();
-		int[] attackerItems = atkLog.getAttackerGear();
-		int[] defenderItems = atkLog.getDefenderGear();
-		boolean success = atkLog.success();
-		AnimationData animationData = atkLog.getAnimationData();
-		boolean successfulOffensive = atkLog.getAnimationData().attackStyle.isUsingSuccessfulOffensivePray(atkLog.getAttackerOffensivePray());
-
-		averageHit = 0;
-		accuracy = 0;
-		minHit = 0;
-		maxHit = 0;
-
-		EquipmentData weapon = EquipmentData.fromId(fixItemId(attackerItems[KitType.WEAPON.getIndex()]));
+		HitType hitType = special != null && (usingSpec || special.getHitType().isRegularAttacks()) ?
+			special.getHitType() : HitType.REGULAR;
 
-		int[] playerStats = this.calculateBonuses(attackerItems);
-		int[] opponentStats = this.calculateBonuses(defenderItems);
-		AnimationData.AttackStyle attackStyle = animationData.attackStyle; // basic style: stab/slash/crush/ranged/magic
+		int minHit = 0;
+		double prayerModifier = success ? 1 : UNSUCCESSFUL_PRAY_DMG_MODIFIER;
+		double averageSuccessfulHit;
+		switch (hitType)
+		{
+			// average hit calculation for attacks that have minimum hits that are skewed towards hitting minimum hit more often
+			case RAISED_MIN_HIT:
+			case RAISED_MIN_HIT_ON_MISS:
+			{
+				double accuracyAdjuster = hitType == HitType.RAISED_MIN_HIT_ON_MISS ? accuracy : 1;
+				minHit = special.getMinHit(maxHit);
 
-		// Special attack used will be determined based on the currently used weapon, if its special attack has been implemented.
-		// the animation just serves to tell if they actually did a special attack animation, since some animations
-		// are used for multiple special attacks.
-		boolean isSpecial = animationData.isSpecial;
-		VoidStyle voidStyle = VoidStyle.getVoidStyleFor(attackerItems);
+				averageSuccessfulHit = getAverageRaisedMinHit(minHit, maxHit, accuracyAdjuster);
+				break;
+			}
+			case DRAGON_CLAWS:
+			{
+				// if first 1-2 claws miss, it's a 150% dmg multiplier because when the 3rd att hits, the last
+				// 2 hits are 75% dmg multiplier, so 75% + 75% = 150%. It's a matter of a 2x multiplier or a
+				// 1.5x multiplier and the chance of a 2x multiplier is what higherModifierChance is for
+
+				// inverted accuracy is used to calculate the chances of missing specifically 1, 2 or 3 times in a row
+				double invertedAccuracy = 1 - accuracy;
+				double averageSuccessfulRegularHit = maxHit / 2;
+				double higherModifierChance = (accuracy + (accuracy * invertedAccuracy));
+				double lowerModifierChance = ((accuracy * Math.pow(invertedAccuracy, 2)) + (accuracy * Math.pow(invertedAccuracy, 3)));
+				double averageSpecialHit = ((higherModifierChance * 2) + (lowerModifierChance * 1.5)) * averageSuccessfulRegularHit;
+
+				// the random +1 is not included in avg hit but it is included in the max hit to be seen from fight logs
+				return new DamageResult(averageSpecialHit * prayerModifier, higherModifierChance + lowerModifierChance,
+					minHit, maxHit * 2 + 1, getHitDistribution(hitType, 0, prayerModifier, accuracy, minHit, maxHit));
+			}
+			case OSMUMTENS_FANG:
+			{
+				double maxHitMultiplier = usingSpec ? 1 : FANG_DMG_MODIFIER; // max hit when using spec is 100% but minHit stays the same
+				// accuracy rolls twice for the fang, so the accuracy is equal to 1 - chance of hit1 OR hit2
+				double invertedAccuracy = 1 - accuracy; // example: if accuracy is 20% and thus 0.2, inverted accuracy is 0.8
+				double chanceOfMissingTwice = Math.pow(invertedAccuracy, 2); // 0.8 squared is 0.64 or 64%
+				accuracy = 1 - chanceOfMissingTwice; // thus 64% chance of missing, or 36% accuracy
+				// max hit is 0.85% and min hit is 15%
+				// unlike VLS/SWH/Dbow I believe this rolls between min and max instead of raising hits between 0 - minHit to minHit
+				minHit = special.getMinHit(maxHit);
+				maxHit = (int) (maxHitMultiplier * maxHit);
+
+				averageSuccessfulHit = getAverageMinToMaxHit(minHit, maxHit);
+				break;
+			}
+			// average hit calculation for attacks with minimum hits that use a more 'intuitive' average hit, similar to osmuten's fang
+			case MIN_TO_MAX_HIT:
+				minHit = special.getMinHit(maxHit);
 
-		if (attackStyle.isMelee())
-		{
-			getMeleeMaxHit(playerStats[STRENGTH_BONUS], isSpecial, weapon, voidStyle, successfulOffensive);
-			getMeleeAccuracy(playerStats, opponentStats, attackStyle, isSpecial, weapon, voidStyle, successfulOffensive);
-		}
-		else if (attackStyle == AttackStyle.RANGED)
-		{
-			getRangedMaxHit(playerStats[RANGE_STRENGTH], isSpecial, weapon, voidStyle, successfulOffensive, attackerItems);
-			getRangeAccuracy(playerStats[RANGE_ATTACK], opponentStats[RANGE_DEF], isSpecial, weapon, voidStyle, successfulOffensive, attackerItems);
-		}
-		// this should always be true at this point, but just in case. unknown animation styles won't
-		// make it here, they should be stopped in FightPerformance::checkForAttackAnimations
-		else if (attackStyle == AttackStyle.MAGIC)
-		{
-			EquipmentData shield = EquipmentData.fromId(fixItemId(attackerItems[KitType.SHIELD.getIndex()]));
-			getMagicMaxHit(shield, playerStats[MAGIC_DAMAGE], animationData, weapon, voidStyle, successfulOffensive);
-			getMagicAccuracy(playerStats[MAGIC_ATTACK], opponentStats[MAGIC_DEF], weapon, animationData, voidStyle, successfulOffensive, defenderLog.getAttackerOffensivePray() == SpriteID.PRAYER_AUGURY);
+				averageSuccessfulHit = getAverageMinToMaxHit(minHit, maxHit);
+				break;
+			default:
+				// divide by double to get accurate decimals, since this is the averageHit result,
+				// not a core OSRS damage calc that is meant to be rounded down by int
+				averageSuccessfulHit = maxHit / 2.0;
+				break;
 		}
 
-		getAverageHit(success, weapon, isSpecial);
+		double averageHit = accuracy * averageSuccessfulHit * prayerModifier;
 
-		maxHit = (int)(maxHit * (success ? 1 : UNSUCCESSFUL_PRAY_DMG_MODIFIER));
+		int fixedDamage = usingSpec && special != null ? special.getFixedDamage() : 0;
+		averageHit += fixedDamage;
+
+		return new DamageResult(averageHit, accuracy, minHit, maxHit,
+			getHitDistribution(hitType, fixedDamage, prayerModifier, accuracy, minHit, maxHit));
 	}
 
-	private void getAverageHit(boolean success, EquipmentData weapon, boolean usingSpec)
+	// average successful hit for attacks where any roll below the min hit is raised to the min hit, rather than
+	// rolling between min and max. When there is a minimum hit, it does not simply change the potential hit range:
+	// potential hit rolls (min=0 max=5): 0, 1, 2, 3, 4, 5
+	// potential hit rolls (min=3 max=5): 3, 3, 3, 3, 4, 5 (intuitively it would just be 3, 4, 5, but nope)
+	// so, it is more common to roll the minimum hit and that has to be accounted for in the average hit.
+	// Raised rolls are scaled by 1 / accuracyAdjuster (the dbow min hit also applies on a miss), and, same as the
+	// int total this used to be summed into, each raised roll is truncated. Closed form of summing every roll.
+	static double getAverageRaisedMinHit(int minHit, int maxHit, double accuracyAdjuster)
 	{
-		boolean ancientGs = weapon == EquipmentData.ANCIENT_GODSWORD;
-		boolean dbow = weapon == EquipmentData.DARK_BOW;
-		boolean claws = weapon == EquipmentData.DRAGON_CLAWS;
-		boolean fang = weapon == EquipmentData.OSMUMTENS_FANG;
-		boolean vls = weapon == EquipmentData.VESTAS_LONGSWORD;
-		boolean swh = weapon == EquipmentData.STATIUS_WARHAMMER;
-		boolean voidwaker = weapon == EquipmentData.VOIDWAKER;
+		// no roll can hit, and there's nothing to average over (the summing loop divided by 0 here).
+		if (maxHit <= 0) { return 0; }
 
-		double prayerModifier = success ? 1 : UNSUCCESSFUL_PRAY_DMG_MODIFIER;
-		double averageSuccessfulHit;
-		// average hit calculation for attacks that have minimum hits that are skewed towards hitting minimum hit more often
-		if (usingSpec && (dbow || vls || swh))
-		{
-			double accuracyAdjuster = dbow ? accuracy : 1;
-			minHit = dbow ? DBOW_SPEC_MIN_HIT : 0;
-			minHit = vls ? (int) (maxHit * VLS_SPEC_MIN_DMG_MODIFIER) : minHit;
-			minHit = swh ? (int) (maxHit * SWH_SPEC_MIN_DMG_MODIFIER) : minHit;
+		// rolls 0..raisedRolls-1 are raised, the rest (raisedRolls..maxHit) count as themselves
+		int raisedRolls = Math.min(Math.max(minHit, 0), maxHit + 1);
+		long total = raisedRolls * (long) (int) (minHit / accuracyAdjuster);
+		total += ((long) raisedRolls + maxHit) * (maxHit - raisedRolls + 1) / 2;
 
-			int total = 0;
+		return (double) total / maxHit;
+	}
 
-			// this odd logic is used to calculate avg hit because when there is a minimum hit,
-			// it does not simply change the potential hit range as you would expect:
-			// potential hit rolls (min=0 max=5): 0, 1, 2, 3, 4, 5
-			// potential hit rolls (min=3 max=5): 3, 3, 3, 3, 4, 5 (intuitively it would just be 3, 4, 5, but nope)
-			// so, it is more common to roll the minimum hit and that has to be accounted for in the average hit.
+	// average successful hit for attacks that roll evenly between the min hit and max hit.
+	static double getAverageMinToMaxHit(int minHit, int maxHit)
+	{
+		return (minHit + maxHit) / 2.0;
+	}
+
+	// probability of each damage value for the attack, following the same cases as getAverageHit. Hits scaled to
+	// a fraction (off-pray or claws' 1.5x) are split between the damage below and above, so that the distribution's
+	// mean matches the average hit. Exceptions: raised min hit specs spread their rolls over maxHit + 1 rolls rather
+	// than maxHit, and claws specs don't round down the regular average hit, so their means can be slightly off.
+	private static HitDistribution getHitDistribution(HitType hitType, int fixedDamage, double prayerModifier,
+		double accuracy, int minHit, int maxHit)
+	{
+		double[] hits = new double[(hitType == HitType.DRAGON_CLAWS ? maxHit * 2 : Math.max(maxHit, minHit)) + 2];
+		if (hitType == HitType.RAISED_MIN_HIT || hitType == HitType.RAISED_MIN_HIT_ON_MISS)
+		{
+			// rolls below the min hit are raised to the min hit, which can also apply when missing.
+			boolean minHitOnMiss = hitType == HitType.RAISED_MIN_HIT_ON_MISS;
+			double rollChance = 1.0 / (maxHit + 1);
 			for (int i = 0; i <= maxHit; i++)
 			{
-				total += i < minHit ? minHit / accuracyAdjuster : i;
+				if (i < minHit && minHitOnMiss)
+				{
+					addHit(hits, minHit * prayerModifier, rollChance);
+					continue;
+				}
+				addHit(hits, Math.max(i, minHit) * prayerModifier, rollChance * accuracy);
+				addHit(hits, 0, rollChance * (1 - accuracy));
 			}
-
-			averageSuccessfulHit = (double) total / maxHit;
 		}
-		else if (usingSpec && claws)
+		else if (hitType == HitType.DRAGON_CLAWS)
 		{
-			// if first 1-2 claws miss, it's a 150% dmg multiplier because when the 3rd att hits, the last
-			// 2 hits are 75% dmg multiplier, so 75% + 75% = 150%. It's a matter of a 2x multiplier or a
-			// 1.5x multiplier and the chance of a 2x multiplier is what higherModifierChance is for
-
-			// inverted accuracy is used to calculate the chances of missing specifically 1, 2 or 3 times in a row
+			// see getAverageHit: either a 2x or 1.5x multiplier on a regular hit, or all 4 hits missed.
 			double invertedAccuracy = 1 - accuracy;
-			double averageSuccessfulRegularHit = maxHit / 2;
 			double higherModifierChance = (accuracy + (accuracy * invertedAccuracy));
 			double lowerModifierChance = ((accuracy * Math.pow(invertedAccuracy, 2)) + (accuracy * Math.pow(invertedAccuracy, 3)));
-			double averageSpecialHit = ((higherModifierChance * 2) + (lowerModifierChance * 1.5)) * averageSuccessfulRegularHit;
-
-			averageHit = averageSpecialHit * prayerModifier;
-			accuracy = higherModifierChance + lowerModifierChance;
-			// the random +1 is not included in avg hit but it is included in the max hit to be seen from fight logs
-			maxHit = maxHit * 2 + 1;
-			return;
-		}
-		else if (fang)
-		{
-			double maxHitMultiplier = usingSpec ? 1: 0.85; // max hit when using spec is 100% but minHit stays the same
-			// accuracy rolls twice for the fang, so the accuracy is equal to 1 - chance of hit1 OR hit2
-			double invertedAccuracy = 1 - accuracy; // example: if accuracy is 20% and thus 0.2, inverted accuracy is 0.8
-			double chanceOfMissingTwice = Math.pow(invertedAccuracy, 2); // 0.8 squared is 0.64 or 64%
-			accuracy = 1 - chanceOfMissingTwice; // thus 64% chance of missing, or 36% accuracy
-			// max hit is 0.85% and min hit is 15%
-			// unlike VLS/SWH/Dbow I believe this rolls between min and max instead of raising hits between 0 - minHit to minHit
-			minHit = (int) (0.15 * maxHit);
-			maxHit = (int) (maxHitMultiplier * maxHit);
-
-			averageSuccessfulHit = (minHit + maxHit) / 2.0;
-		}
-		// average hit calculation for attacks with minimum hits that use a more 'intuitive' average hit, similar to osmuten's fang
-		else if (usingSpec && voidwaker)
-		{
-			minHit = (int) (maxHit * VOIDWAKER_SPEC_MIN_DMG_MODIFIER);
-
-			averageSuccessfulHit = (minHit + maxHit) / 2.0;
+			double rollChance = 1.0 / (maxHit + 1);
+			for (int i = 0; i <= maxHit; i++)
+			{
+				addHit(hits, i * 2 * prayerModifier, rollChance * higherModifierChance);
+				addHit(hits, i * 1.5 * prayerModifier, rollChance * lowerModifierChance);
+			}
+			addHit(hits, 0, 1 - higherModifierChance - lowerModifierChance);
 		}
 		else
 		{
-			// divide by double to get accurate decimals, since this is the averageHit result,
-			// not a core OSRS damage calc that is meant to be rounded down by int
-			// If reaching this part of the code, the minHit should always be 0, but include it anyways
-			// just in case.
-			averageSuccessfulHit = (minHit + maxHit) / 2.0;
-			if (minHit > 0)
+			// fang & min to max hit specs roll between their min and max hit, anything else between 0 and max hit.
+			int rollMin = hitType == HitType.OSMUMTENS_FANG || hitType == HitType.MIN_TO_MAX_HIT ? minHit : 0;
+			double rollChance = 1.0 / (maxHit - rollMin + 1);
+			for (int i = rollMin; i <= maxHit; i++)
 			{
-				log.info("PvpDamageCalc:getAverageHit: Fell into default avg hit calculation with a minHit > 0 (" +
-					minHit + "). Shouldn't happen. Weapon: " + weapon.toString());
+				addHit(hits, i * prayerModifier, rollChance * accuracy);
 			}
+			addHit(hits, 0, 1 - accuracy);
 		}
 
-		averageHit = accuracy * averageSuccessfulHit * prayerModifier;
+		int length = hits.length;
+		while (length > 1 && hits[length - 1] == 0)
+		{
+			length--;
+		}
 
-		if (usingSpec && ancientGs)
+		// fixed damage (ancient godsword) is added to every hit, as it is for the average hit.
+		double[] distribution = new double[length + fixedDamage];
+		System.arraycopy(hits, 0, distribution, fixedDamage, length);
+		return new HitDistribution(distribution);
+	}
+
+	private static void addHit(double[] hits, double damage, double chance)
+	{
+		if (chance <= 0) { return; }
+
+		int lower = (int) damage;
+		double upperChance = damage - lower;
+		hits[lower] += chance * (1 - upperChance);
+		if (upperChance > 0)
 		{
-			averageHit += ANCIENT_GS_FIXED_DAMAGE;
+			hits[lower + 1] += chance * upperChance;
 		}
 	}
 
-	private void getMeleeMaxHit(int meleeStrength, boolean usingSpec, EquipmentData weapon, VoidStyle voidStyle, boolean successfulOffensive)
+	private static int getMeleeMaxHit(AttackContext context, GearProfile gear, boolean usingSpec)
 	{
-		boolean ags = weapon == EquipmentData.ARMADYL_GODSWORD;
-		boolean ancientGs = weapon == EquipmentData.ANCIENT_GODSWORD;
-		boolean dds = weapon == EquipmentData.DRAGON_DAGGER;
-		boolean vls = weapon == EquipmentData.VESTAS_LONGSWORD;
-		boolean swh = weapon == EquipmentData.STATIUS_WARHAMMER;
-		boolean dwh = weapon == EquipmentData.DRAGON_WARHAMMER;
-		boolean voidwaker = weapon == EquipmentData.VOIDWAKER;
-
-		int effectiveLevel = (int) Math.floor((attackerLevels.str * (successfulOffensive ? PIETY_STR_PRAYER_MODIFIER : 1)) + 8 + 3);
+		int meleeStrength = gear.bonuses[STRENGTH_BONUS];
+		VoidStyle voidStyle = gear.voidStyle;
+
+		int effectiveLevel = (int) Math.floor((context.getAttackerLevels().str * (context.isSuccessfulOffensive() ? PIETY_STR_PRAYER_MODIFIER : 1)) + 8 + 3);
 		// apply void bonus if applicable
 		if (voidStyle == VoidStyle.VOID_ELITE_MELEE || voidStyle == VoidStyle.VOID_MELEE)
 		{
@@ -361,39 +439,22 @@ public class PvpDamageCalc
 		}
 
 		int baseDamage = (int) Math.floor(0.5 + effectiveLevel * (meleeStrength + 64) / 640);
-		double damageModifier = (ags && usingSpec) ? ARMA_GS_SPEC_DMG_MODIFIER :
-			(ancientGs && usingSpec) ? ANCIENT_GS_SPEC_DMG_MODIFIER :
-			(swh && usingSpec) ? SWH_SPEC_DMG_MODIFIER :
-			(dds && usingSpec) ? DDS_SPEC_DMG_MODIFIER :
-			(vls && usingSpec) ? VLS_SPEC_DMG_MODIFIER :
-			(dwh && usingSpec) ? DWH_SPEC_DMG_MODIFIER :
-			(voidwaker && usingSpec) ? VOIDWAKER_SPEC_DMG_MODIFIER :
-			1;
-		maxHit = (int) (damageModifier * baseDamage);
+		SpecialAttackData special = usingSpec ? gear.getMeleeSpecial() : null;
+		double damageModifier = special != null ? special.getDmgModifier() : 1;
+		return (int) (damageModifier * baseDamage);
 	}
 
-	private void getRangedMaxHit(int rangeStrength, boolean usingSpec, EquipmentData weapon, VoidStyle voidStyle, boolean successfulOffensive, int[] attackerComposition)
+	private static int getRangedMaxHit(AttackContext context, GearProfile gear, boolean usingSpec)
 	{
-		RangeAmmoData weaponAmmo = EquipmentData.getWeaponAmmo(weapon);
-		EquipmentData head = EquipmentData.fromId(fixItemId(attackerComposition[KitType.HEAD.getIndex()]));
-		EquipmentData body = EquipmentData.fromId(fixItemId(attackerComposition[KitType.TORSO.getIndex()]));
-		EquipmentData legs = EquipmentData.fromId(fixItemId(attackerComposition[KitType.LEGS.getIndex()]));
-
-		// if it's an LMS fight and bolts are used, force diamond bolts (e) or opal dragon bolts (e) based on weapon used.
-		if (this.isLmsFight)
-		{
-			weaponAmmo = weaponAmmo instanceof RangeAmmoData.StrongBoltAmmo ? RangeAmmoData.StrongBoltAmmo.OPAL_DRAGON_BOLTS_E :
-				weaponAmmo instanceof RangeAmmoData.BoltAmmo ? RangeAmmoData.BoltAmmo.DIAMOND_BOLTS_E : weaponAmmo;
-		}
-
-		boolean ballista = weapon == EquipmentData.HEAVY_BALLISTA;
-		boolean dbow = weapon == EquipmentData.DARK_BOW;
+		int rangeStrength = gear.bonuses[RANGE_STRENGTH];
+		RangeAmmoData weaponAmmo = gear.ammo;
+		VoidStyle voidStyle = gear.voidStyle;
 
 		int ammoStrength = weaponAmmo == null ? 0 : weaponAmmo.getRangeStr();
 
 		rangeStrength += ammoStrength;
 
-		int effectiveLevel = (int) Math.floor((attackerLevels.range * (successfulOffensive ? RIGOUR_OFFENSIVE_PRAYER_DMG_MODIFIER : 1)) + 8);
+		int effectiveLevel = (int) Math.floor((context.getAttackerLevels().range * (context.isSuccessfulOffensive() ? RIGOUR_OFFENSIVE_PRAYER_DMG_MODIFIER : 1)) + 8);
 		// apply void bonus if applicable
 		if (voidStyle == VoidStyle.VOID_ELITE_RANGE || voidStyle == VoidStyle.VOID_RANGE)
 		{
@@ -402,33 +463,29 @@ public class PvpDamageCalc
 
 		int baseDamage = (int) Math.floor(0.5 + (effectiveLevel * (rangeStrength + 64) / 640));
 
-		double modifier = weaponAmmo == null ? 1 : weaponAmmo.getDmgModifier();
-		modifier = ballista && usingSpec ? BALLISTA_SPEC_DMG_MODIFIER : modifier;
-		modifier = dbow && !usingSpec ? DBOW_DMG_MODIFIER : modifier;
-		modifier = dbow && usingSpec ? DBOW_SPEC_DMG_MODIFIER : modifier;
-		maxHit = weaponAmmo == null ?
+		// a special attack's damage modifier replaces the ammo's
+		SpecialAttackData special = usingSpec ? gear.getRangedSpecial() : null;
+		double modifier = special != null && special.getDmgModifier() != 1 ? special.getDmgModifier() : gear.rangedDmgModifier;
+		int maxHit = weaponAmmo == null ?
 			(int) (modifier * baseDamage) :
-			(int) ((modifier * baseDamage) + weaponAmmo.getBonusMaxHit(attackerLevels.range));
+			(int) ((modifier * baseDamage) + weaponAmmo.getBonusMaxHit(context.getAttackerLevels().range));
 
 		// apply crystal armor bonus if using bow
-		if ((weapon == EquipmentData.BOW_OF_FAERDHINEN || weapon == EquipmentData.CRYSTAL_BOW || weapon == EquipmentData.CRYSTAL_BOW_I) &&
-			(head == EquipmentData.CRYSTAL_HELM || body == EquipmentData.CRYSTAL_BODY || legs == EquipmentData.CRYSTAL_LEGS))
+		if (gear.crystalDmgModifier != 1)
 		{
-			double dmgModifier = 1 +
-				(head == EquipmentData.CRYSTAL_HELM ? 0.025 : 0) +
-				(body == EquipmentData.CRYSTAL_BODY ? 0.075 : 0) +
-				(legs == EquipmentData.CRYSTAL_LEGS ? 0.05 : 0);
-
-			maxHit *= dmgModifier;
+			maxHit *= gear.crystalDmgModifier;
 		}
+
+		return maxHit;
 	}
 
-	private void getMagicMaxHit(EquipmentData shield, int mageDamageBonus, AnimationData animationData, EquipmentData weapon, VoidStyle voidStyle, boolean successfulOffensive)
+	private static int getMagicMaxHit(GearProfile gear, AnimationData animationData)
 	{
-		boolean smokeBstaff = weapon == EquipmentData.SMOKE_BATTLESTAFF;
-		boolean tome = shield == EquipmentData.TOME_OF_FIRE;
+		boolean smokeBstaff = gear.weapon == EquipmentData.SMOKE_BATTLESTAFF;
+		boolean tome = gear.shield == EquipmentData.TOME_OF_FIRE;
+		VoidStyle voidStyle = gear.voidStyle;
 
-		double magicBonus = 1 + (mageDamageBonus / 100.0);
+		double magicBonus = 1 + (gear.bonuses[MAGIC_DAMAGE] / 100.0);
 		// provide dmg buff from smoke battlestaff if applicable
 		if (smokeBstaff && AnimationData.isStandardSpellbookSpell(animationData))
 		{
@@ -445,22 +502,18 @@ public class PvpDamageCalc
 			magicBonus *= voidStyle.dmgModifier;
 		}
 
-		maxHit = (int)(animationData.baseSpellDamage * magicBonus);
+		return (int)(animationData.baseSpellDamage * magicBonus);
 	}
 
-	private void getMeleeAccuracy(int[] playerStats, int[] opponentStats, AttackStyle attackStyle, boolean usingSpec, EquipmentData weapon, VoidStyle voidStyle, boolean successfulOffensive)
+	private static double getMeleeAccuracy(AttackContext context, GearProfile gear, int[] opponentStats, AttackStyle attackStyle, boolean usingSpec)
 	{
-		boolean vls = weapon == EquipmentData.VESTAS_LONGSWORD;
-		boolean ags = weapon == EquipmentData.ARMADYL_GODSWORD;
-		boolean ancientGs = weapon == EquipmentData.ANCIENT_GODSWORD;
-		boolean dds = weapon == EquipmentData.DRAGON_DAGGER;
-		boolean fang = weapon == EquipmentData.OSMUMTENS_FANG;
-		boolean voidwaker = weapon == EquipmentData.VOIDWAKER;
+		int[] playerStats = gear.bonuses;
+		VoidStyle voidStyle = gear.voidStyle;
+		SpecialAttackData special = usingSpec ? gear.getMeleeSpecial() : null;
 
-		if (voidwaker && usingSpec)
+		if (special != null && special.getFixedAccuracy() > 0)
 		{
-			accuracy = VOIDWAKER_FIXED_ACCURACY;
-			return;
+			return special.getFixedAccuracy();
 		}
 
 		double stabBonusPlayer = playerStats[STAB_ATTACK];
@@ -479,16 +532,10 @@ public class PvpDamageCalc
 		double attackerChance;
 		double defenderChance = 0;
 
-		double accuracyModifier = dds ? DDS_SPEC_ACCURACY_MODIFIER :
-			ags ? ARMA_GS_SPEC_ACCURACY_MODIFIER :
-			ancientGs ? ANCIENT_GS_SPEC_ACCURACY_MODIFIER :
-			fang ? FANG_SPEC_ACCURACY_MODIFIER :
-			1;
-
 		/**
 		 * Attacker Chance
 		 */
-		effectiveLevelPlayer = Math.floor(((attackerLevels.atk * (successfulOffensive ? PIETY_ATK_PRAYER_MODIFIER : 1)) + STANCE_BONUS) + 8);
+		effectiveLevelPlayer = Math.floor(((context.getAttackerLevels().atk * (context.isSuccessfulOffensive() ? PIETY_ATK_PRAYER_MODIFIER : 1)) + STANCE_BONUS) + 8);
 		// apply void bonus if applicable
 		if (voidStyle == VoidStyle.VOID_ELITE_MELEE || voidStyle == VoidStyle.VOID_MELEE)
 		{
@@ -503,9 +550,9 @@ public class PvpDamageCalc
 
 
 		baseChance = Math.floor(effectiveLevelPlayer * (attackBonus + 64));
-		if (usingSpec)
+		if (special != null)
 		{
-			baseChance = baseChance * accuracyModifier;
+			baseChance = baseChance * special.getAccuracyModifier();
 		}
 
 		attackerChance = baseChance;
@@ -513,11 +560,11 @@ public class PvpDamageCalc
 		/**
 		 * Defender Chance
 		 */
-		effectiveLevelTarget = Math.floor(((defenderLevels.def * PIETY_DEF_PRAYER_MODIFIER) + STANCE_BONUS) + 8);
+		effectiveLevelTarget = Math.floor(((context.getDefenderLevels().def * PIETY_DEF_PRAYER_MODIFIER) + STANCE_BONUS) + 8);
 
-		if (vls && usingSpec)
+		if (special != null && special.getDefenceModifier() != 1)
 		{
-			defenderChance = Math.floor((effectiveLevelTarget * (stabBonusTarget + 64)) * VLS_SPEC_DEFENCE_SCALE);
+			defenderChance = Math.floor((effectiveLevelTarget * (stabBonusTarget + 64)) * special.getDefenceModifier());
 		}
 		else
 		{
@@ -529,36 +576,29 @@ public class PvpDamageCalc
 		 */
 		if (attackerChance > defenderChance)
 		{
-			accuracy = 1 - (defenderChance + 2) / (2 * (attackerChance + 1));
+			return 1 - (defenderChance + 2) / (2 * (attackerChance + 1));
 		}
 		else
 		{
-			accuracy = attackerChance / (2 * (defenderChance + 1));
+			return attackerChance / (2 * (defenderChance + 1));
 		}
 	}
 
-	private void getRangeAccuracy(int playerRangeAtt, int opponentRangeDef, boolean usingSpec, EquipmentData weapon, VoidStyle voidStyle, boolean successfulOffensive, int[] attackerComposition)
+	private static double getRangeAccuracy(AttackContext context, GearProfile gear, int opponentRangeDef, boolean usingSpec)
 	{
-		RangeAmmoData weaponAmmo = EquipmentData.getWeaponAmmo(weapon);
-		// if it's an LMS fight and bolts are used, don't use config bolt, just use diamond bolts(e)
-		if (this.isLmsFight && (weaponAmmo instanceof RangeAmmoData.BoltAmmo ||
-			weaponAmmo instanceof RangeAmmoData.StrongBoltAmmo))
-		{
-			weaponAmmo = RangeAmmoData.BoltAmmo.DIAMOND_BOLTS_E;
-		}
-
-		boolean diamonds = ArrayUtils.contains(RangeAmmoData.DIAMOND_BOLTS, weaponAmmo);
-		boolean opals = ArrayUtils.contains(RangeAmmoData.OPAL_BOLTS, weaponAmmo);
+		int playerRangeAtt = gear.bonuses[RANGE_ATTACK];
+		VoidStyle voidStyle = gear.voidStyle;
 		double effectiveLevelPlayer;
 		double effectiveLevelTarget;
 		double rangeModifier;
+		double accuracy;
 		double attackerChance;
 		double defenderChance;
 
 		/**
 		 * Attacker Chance
 		 */
-		effectiveLevelPlayer = Math.floor(((attackerLevels.range * (successfulOffensive ? RIGOUR_OFFENSIVE_PRAYER_ATTACK_MODIFIER : 1)) + STANCE_BONUS) + 8);
+		effectiveLevelPlayer = Math.floor(((context.getAttackerLevels().range * (context.isSuccessfulOffensive() ? RIGOUR_OFFENSIVE_PRAYER_ATTACK_MODIFIER : 1)) + STANCE_BONUS) + 8);
 		// apply void bonus if applicable
 		if (voidStyle == VoidStyle.VOID_ELITE_RANGE || voidStyle == VoidStyle.VOID_RANGE)
 		{
@@ -566,31 +606,13 @@ public class PvpDamageCalc
 		}
 
 		// apply crystal armor bonus if using bow
-		EquipmentData head = EquipmentData.fromId(fixItemId(attackerComposition[KitType.HEAD.getIndex()]));
-		EquipmentData body = EquipmentData.fromId(fixItemId(attackerComposition[KitType.TORSO.getIndex()]));
-		EquipmentData legs = EquipmentData.fromId(fixItemId(attackerComposition[KitType.LEGS.getIndex()]));
-
-		if ((weapon == EquipmentData.BOW_OF_FAERDHINEN || weapon == EquipmentData.CRYSTAL_BOW || weapon == EquipmentData.CRYSTAL_BOW_I) &&
-			(head == EquipmentData.CRYSTAL_HELM || body == EquipmentData.CRYSTAL_BODY || legs == EquipmentData.CRYSTAL_LEGS))
-		{
-			double accuracyModifier = 1 +
-				(head == EquipmentData.CRYSTAL_HELM ? 0.05 : 0) +
-				(body == EquipmentData.CRYSTAL_BODY ? 0.15 : 0) +
-				(legs == EquipmentData.CRYSTAL_LEGS ? 0.1 : 0);
-
-			effectiveLevelPlayer *= accuracyModifier;
-		}
+		effectiveLevelPlayer *= gear.crystalAccuracyModifier;
 
 		rangeModifier = Math.floor(effectiveLevelPlayer * ((double) playerRangeAtt + 64));
 		if (usingSpec)
 		{
-			boolean acb = weapon == EquipmentData.ARMADYL_CROSSBOW;
-			boolean ballista = weapon == EquipmentData.HEAVY_BALLISTA;
-
-			double specAccuracyModifier = acb ? ACB_SPEC_ACCURACY_MODIFIER :
-				ballista ? BALLISTA_SPEC_ACCURACY_MODIFIER : 1;
-
-			attackerChance = Math.floor(rangeModifier * specAccuracyModifier);
+			SpecialAttackData special = gear.getRangedSpecial();
+			attackerChance = Math.floor(rangeModifier * (special != null ? special.getAccuracyModifier() : 1));
 		}
 		else
 		{
@@ -600,7 +622,7 @@ public class PvpDamageCalc
 		/**
 		 * Defender Chance
 		 */
-		effectiveLevelTarget = Math.floor(((defenderLevels.def * RIGOUR_DEF_PRAYER_MODIFIER) + STANCE_BONUS) + 8);
+		effectiveLevelTarget = Math.floor(((context.getDefenderLevels().def * RIGOUR_DEF_PRAYER_MODIFIER) + STANCE_BONUS) + 8);
 		defenderChance = Math.floor(effectiveLevelTarget * ((double) opponentRangeDef + 64));
 
 		/**
@@ -619,11 +641,14 @@ public class PvpDamageCalc
 		// upon further testing this effect applies to opal dragon bolts as well
 		// diamond bolts and opal bolts accuracy: 5% of attacks are 100% accuracy, so apply avg accuracy as:
 		// (95% of normal accuracy) + (5% of 100% accuracy)
-		accuracy = (diamonds || opals) ? (accuracy * .95) + .05 : accuracy;
+		return gear.boltSpecAccuracy ? (accuracy * .95) + .05 : accuracy;
 	}
 
-	private void getMagicAccuracy(int playerMageAtt, int opponentMageDef, EquipmentData weapon, AnimationData animationData, VoidStyle voidStyle, boolean successfulOffensive, boolean defensiveAugurySuccess)
+	private static double getMagicAccuracy(AttackContext context, GearProfile gear, int opponentMageDef)
 	{
+		AnimationData animationData = context.getAnimationData();
+		int playerMageAtt = gear.bonuses[MAGIC_ATTACK];
+		VoidStyle voidStyle = gear.voidStyle;
 		double effectiveLevelPlayer;
 
 		double reducedDefenceLevelTarget;
@@ -633,6 +658,7 @@ public class PvpDamageCalc
 		double effectiveLevelTarget;
 
 		double magicModifier;
+		double accuracy;
 
 		double attackerChance;
 		double defenderChance;
@@ -640,7 +666,7 @@ public class PvpDamageCalc
 		/**
 		 * Attacker Chance
 		 */
-		effectiveLevelPlayer = Math.floor(((attackerLevels.mage * (successfulOffensive ? AUGURY_OFFENSIVE_PRAYER_MODIFIER : 1))) + 8);
+		effectiveLevelPlayer = Math.floor(((context.getAttackerLevels().mage * (context.isSuccessfulOffensive() ? AUGURY_OFFENSIVE_PRAYER_MODIFIER : 1))) + 8);
 		// apply void bonus if applicable
 		if (voidStyle == VoidStyle.VOID_ELITE_MAGE || voidStyle == VoidStyle.VOID_MAGE)
 		{
@@ -653,13 +679,13 @@ public class PvpDamageCalc
 		/**
 		 * Defender Chance
 		 */
-		effectiveLevelTarget = Math.floor(((defenderLevels.def * AUGURY_DEF_PRAYER_MODIFIER) + STANCE_BONUS) + 8);
-		effectiveMagicLevelTarget = Math.floor((defenderLevels.mage * (defensiveAugurySuccess ? AUGURY_MAGEDEF_PRAYER_MODIFIER : 1)) * 0.70);
+		effectiveLevelTarget = Math.floor(((context.getDefenderLevels().def * AUGURY_DEF_PRAYER_MODIFIER) + STANCE_BONUS) + 8);
+		effectiveMagicLevelTarget = Math.floor((context.getDefenderLevels().mage * (context.isDefensiveAugurySuccess() ? AUGURY_MAGEDEF_PRAYER_MODIFIER : 1)) * 0.70);
 		reducedDefenceLevelTarget = Math.floor(effectiveLevelTarget * 0.30);
 		effectiveMagicDefenceTarget = effectiveMagicLevelTarget + reducedDefenceLevelTarget;
 
 		// 0.975x is a simplified brimstone accuracy formula, where x = mage def
-		defenderChance = ringUsed == RingData.BRIMSTONE_RING ?
+		defenderChance = context.getRingUsed() == RingData.BRIMSTONE_RING ?
 			Math.floor(effectiveMagicDefenceTarget * ((BRIMSTONE_RING_OPPONENT_DEF_MODIFIER * opponentMageDef) + 64)) :
 			Math.floor(effectiveMagicDefenceTarget * ((double) opponentMageDef + 64));
 
@@ -675,8 +701,8 @@ public class PvpDamageCalc
 			accuracy = attackerChance / (2 * (defenderChance + 1));
 		}
 
-		boolean smokeBstaff = weapon == EquipmentData.SMOKE_BATTLESTAFF;
-		boolean volatileStaff = weapon == EquipmentData.VOLATILE_NIGHTMARE_STAFF;
+		boolean smokeBstaff = gear.weapon == EquipmentData.SMOKE_BATTLESTAFF;
+		boolean volatileStaff = gear.weapon == EquipmentData.VOLATILE_NIGHTMARE_STAFF;
 		// provide accuracy buff from smoke battlestaff or volatile staff spec if applicable
 		if (smokeBstaff && AnimationData.isStandardSpellbookSpell(animationData))
 		{
@@ -686,6 +712,8 @@ public class PvpDamageCalc
 		{
 			accuracy *= VOLATILE_NIGHTMARE_STAFF_ACC_MODIFIER;
 		}
+
+		return accuracy;
 	}
 
 	// Retrieve item stats for a single item, returned as an int array so they can be modified.
@@ -730,27 +758,54 @@ public class PvpDamageCalc
 		return null;
 	}
 
-	// this is used to calculate bonuses including the currently used ring, in case we're in LMS but the config ring
-	// is different.
-	private int[] calculateBonusesWithRing(int[] itemIds)
-	{
-		return calculateBonuses(itemIds, this.ringUsed);
-	}
-
 	public static int[] calculateBonuses(int[] itemIds)
 	{
-		return calculateBonuses(itemIds, CONFIG.ringChoice());
+		return calculateBonuses(itemIds, CONFIG_SNAPSHOT.getRingChoice());
 	}
-	// Calculate total equipment bonuses for all given items
+	// Calculate total equipment bonuses for all given items. The returned array is cached and shared
+	// with later calls using the same items & ring, so it must not be modified.
 	public static int[] calculateBonuses(int[] itemIds, RingData ringUsed)
 	{
-		int[] equipmentBonuses = ringUsed == null || ringUsed == RingData.NONE ?
-			new int[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 } :
-			getItemStats(ringUsed.getItemId());
+		return getGearProfile(itemIds, ringUsed, false, CONFIG_SNAPSHOT).bonuses;
+	}
+
+	// get the cached profile of the gear, or resolve it if it's a new loadout.
+	private static GearProfile getGearProfile(int[] itemIds, RingData ringUsed, boolean isLmsFight, ConfigSnapshot config)
+	{
+		GearProfile cachedProfile = GEAR_PROFILE_CACHE.getIfPresent(new GearKey(itemIds, ringUsed, isLmsFight, config));
+		if (cachedProfile != null)
+		{
+			return cachedProfile;
+		}
 
-		if (equipmentBonuses == null) // shouldn't happen, but as a failsafe if the ring lookup fails
+		GearProfile profile = new GearProfile(itemIds, ringUsed, isLmsFight, config);
+
+		// don't cache the profile if some stats weren't found, in case they can be found later.
+		if (profile.allStatsFound)
 		{
-			equipmentBonuses = new int[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+			// copy the items for the key, since the given array could be modified later, e.g. the player composition's.
+			GEAR_PROFILE_CACHE.put(new GearKey(itemIds.clone(), ringUsed, isLmsFight, config), profile);
+		}
+
+		return profile;
+	}
+
+	// Add the equipment bonuses of all given items & the ring to the bonuses. Returns false if some item's stats
+	// weren't found, in which case they are skipped.
+	private static boolean addBonuses(int[] itemIds, RingData ringUsed, int[] equipmentBonuses)
+	{
+		boolean allStatsFound = true;
+		if (ringUsed != null && ringUsed != RingData.NONE)
+		{
+			int[] ringBonuses = getItemStats(ringUsed.getItemId());
+			if (ringBonuses == null) // shouldn't happen, but as a failsafe if the ring lookup fails
+			{
+				allStatsFound = false;
+			}
+			else
+			{
+				System.arraycopy(ringBonuses, 0, equipmentBonuses, 0, ringBonuses.length);
+			}
 		}
 
 		for (int item : itemIds)
@@ -761,6 +816,7 @@ public class PvpDamageCalc
 
 				if (bonuses == null)
 				{
+					allStatsFound = false;
 					continue;
 				}
 
@@ -771,7 +827,7 @@ public class PvpDamageCalc
 			}
 		}
 
-		return equipmentBonuses;
+		return allStatsFound;
 	}
 
 	public static ItemEquipmentStats calculateBonusesToStats(int[] itemIds)
@@ -793,4 +849,105 @@ public class PvpDamageCalc
 			.mdmg(bonuses[MAGIC_DAMAGE])	// 12
 			.build();
 	}
+
+	// everything about a player's gear that the damage calculations need, resolved once per loadout: the total
+	// equipment bonuses, weapon, shield, void style, ammo used, special attack and the modifiers given by the gear.
+	private static class GearProfile
+	{
+		private final int[] bonuses;
+		private final boolean allStatsFound;
+		private final EquipmentData weapon;
+		private final EquipmentData shield;
+		private final VoidStyle voidStyle;
+		private final RangeAmmoData ammo; // ammo used for the ranged max hit
+		private final boolean boltSpecAccuracy; // if diamond or opal bolt specs apply to the ranged accuracy
+		private final double crystalDmgModifier;
+		private final double crystalAccuracyModifier;
+		private final SpecialAttackData special;
+		private final double rangedDmgModifier;
+
+		private GearProfile(int[] itemIds, RingData ringUsed, boolean isLmsFight, ConfigSnapshot config)
+		{
+			bonuses = new int[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+			allStatsFound = addBonuses(itemIds, ringUsed, bonuses);
+
+			weapon = EquipmentData.fromId(fixItemId(itemIds[KitType.WEAPON.getIndex()]));
+			shield = EquipmentData.fromId(fixItemId(itemIds[KitType.SHIELD.getIndex()]));
+			voidStyle = VoidStyle.getVoidStyleFor(itemIds);
+
+			RangeAmmoData weaponAmmo = EquipmentData.getWeaponAmmo(weapon, config);
+			RangeAmmoData accuracyAmmo = weaponAmmo;
+			if (isLmsFight)
+			{
+				// if it's an LMS fight and bolts are used, force diamond bolts (e) or opal dragon bolts (e) based on
+				// weapon used. Accuracy always uses diamond bolts (e) for bolts.
+				weaponAmmo = weaponAmmo instanceof RangeAmmoData.StrongBoltAmmo ? RangeAmmoData.StrongBoltAmmo.OPAL_DRAGON_BOLTS_E :
+					weaponAmmo instanceof RangeAmmoData.BoltAmmo ? RangeAmmoData.BoltAmmo.DIAMOND_BOLTS_E : weaponAmmo;
+				accuracyAmmo = accuracyAmmo instanceof RangeAmmoData.BoltAmmo || accuracyAmmo instanceof RangeAmmoData.StrongBoltAmmo ?
+					RangeAmmoData.BoltAmmo.DIAMOND_BOLTS_E : accuracyAmmo;
+			}
+			ammo = weaponAmmo;
+			boltSpecAccuracy = ArrayUtils.contains(RangeAmmoData.DIAMOND_BOLTS, accuracyAmmo) ||
+				ArrayUtils.contains(RangeAmmoData.OPAL_BOLTS, accuracyAmmo);
+
+			// crystal armor bonus if using bow
+			EquipmentData head = EquipmentData.fromId(fixItemId(itemIds[KitType.HEAD.getIndex()]));
+			EquipmentData body = EquipmentData.fromId(fixItemId(itemIds[KitType.TORSO.getIndex()]));
+			EquipmentData legs = EquipmentData.fromId(fixItemId(itemIds[KitType.LEGS.getIndex()]));
+			if (weapon == EquipmentData.BOW_OF_FAERDHINEN || weapon == EquipmentData.CRYSTAL_BOW || weapon == EquipmentData.CRYSTAL_BOW_I)
+			{
+				crystalDmgModifier = 1 +
+					(head == EquipmentData.CRYSTAL_HELM ? 0.025 : 0) +
+					(body == EquipmentData.CRYSTAL_BODY ? 0.075 : 0) +
+					(legs == EquipmentData.CRYSTAL_LEGS ? 0.05 : 0);
+				crystalAccuracyModifier = 1 +
+					(head == EquipmentData.CRYSTAL_HELM ? 0.05 : 0) +
+					(body == EquipmentData.CRYSTAL_BODY ? 0.15 : 0) +
+					(legs == EquipmentData.CRYSTAL_LEGS ? 0.1 : 0);
+			}
+			else
+			{
+				crystalDmgModifier = 1;
+				crystalAccuracyModifier = 1;
+			}
+
+			special = SpecialAttackData.fromWeapon(weapon);
+			rangedDmgModifier = weapon == EquipmentData.DARK_BOW ? DBOW_DMG_MODIFIER :
+				weaponAmmo == null ? 1 : weaponAmmo.getDmgModifier();
+		}
+
+		// the weapon's special attack if it modifies melee attacks, or null.
+		private SpecialAttackData getMeleeSpecial()
+		{
+			return special != null && !special.isRanged() ? special : null;
+		}
+
+		// the weapon's special attack if it modifies ranged attacks, or null.
+		private SpecialAttackData getRangedSpecial()
+		{
+			return special != null && special.isRanged() ? special : null;
+		}
+	}
+
+	// gear, ring & ammo settings used as a key for the GEAR_PROFILE_CACHE, comparing the gear's contents.
+	@EqualsAndHashCode
+	private static class GearKey
+	{
+		private final int[] itemIds;
+		private final RingData ringUsed;
+		private final boolean isLmsFight;
+		private final RangeAmmoData boltChoice;
+		private final RangeAmmoData strongBoltChoice;
+		private final RangeAmmoData bpDartChoice;
+
+		private GearKey(int[] itemIds, RingData ringUsed, boolean isLmsFight, ConfigSnapshot config)
+		{
+			this.itemIds = itemIds;
+			this.ringUsed = ringUsed;
+			this.isLmsFight = isLmsFight;
+			this.boltChoice = config.getBoltChoice();
+			this.strongBoltChoice = config.getStrongBoltChoice();
+			this.bpDartChoice = config.getBpDartChoice();
+		}
+	}
 }
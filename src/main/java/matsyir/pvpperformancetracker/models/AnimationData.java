@@ -25,10 +25,8 @@
  */
 package matsyir.pvpperformancetracker.models;
 
-import com.google.common.collect.ImmutableMap;
 import java.security.InvalidParameterException;
 import java.util.Arrays;
-import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import net.runelite.api.HeadIcon;
@@ -128,7 +126,8 @@ public enum AnimationData
 	MAGIC_ANCIENT_MULTI_TARGET(1979, AttackStyle.MAGIC, 30), // Burst & Barrage animations (tested all 8, different weapons)
 	MAGIC_VOLATILE_NIGHTMARE_STAFF_SPEC(8532, AttackStyle.MAGIC, 66); // assume 99 mage's base damage (does not rise when boosted).
 
-	private static final Map<Integer, AnimationData> DATA;
+	// lookup table indexed by animation id, so lookups don't need to box the id.
+	private static final AnimationData[] DATA;
 
 	public int animationId;
 	public boolean isSpecial;
@@ -174,21 +173,28 @@ public enum AnimationData
 
 	static
 	{
-		ImmutableMap.Builder<Integer, AnimationData> builder = new ImmutableMap.Builder<>();
+		int maxId = 0;
+		for (AnimationData data : values())
+		{
+			maxId = Math.max(maxId, data.animationId);
+		}
 
+		DATA = new AnimationData[maxId + 1];
 		for (AnimationData data : values())
 		{
 			// allow to skip animation detection by using 0 or less as the animation id.
 			if (data.animationId <= 0) { continue; }
-			builder.put(data.animationId, data);
+			if (DATA[data.animationId] != null)
+			{
+				throw new IllegalArgumentException("Duplicate AnimationData animation id: " + data.animationId);
+			}
+			DATA[data.animationId] = data;
 		}
-
-		DATA = builder.build();
 	}
 
 	public static AnimationData fromId(int animationId)
 	{
-		return DATA.get(animationId);
+		return animationId > 0 && animationId < DATA.length ? DATA[animationId] : null;
 	}
 
 	public static boolean isStandardSpellbookSpell(AnimationData animationData)
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.models;
+
+import lombok.Getter;
+
+// Immutable inputs of a single attack's damage calculation, see PvpDamageCalc::calculateDamage.
+// Gear arrays are kept as references and must not be modified while the calculation is running.
+@Getter
+public class AttackContext
+{
+	private final int[] attackerGear;
+	private final int[] defenderGear;
+	private final CombatLevels attackerLevels;
+	private final CombatLevels defenderLevels;
+	private final AnimationData animationData;
+	private final boolean success; // if the attack was successful against the defender's overhead prayer
+	private final boolean successfulOffensive; // if the attacker used the right offensive prayer
+	private final boolean defensiveAugurySuccess; // if the defender used augury, for its magic defence bonus
+	private final RingData ringUsed; // for ring effects, e.g. the brimstone ring's magic defence reduction
+	// ring whose stats are added to both players' gear: the ringUsed, except when analyzing LMS fights from
+	// the fight log, which have always added the configured ring's stats.
+	private final RingData bonusRing;
+	private final boolean isLmsFight;
+	private final ConfigSnapshot config; // ammo choices
+
+	public AttackContext(int[] attackerGear, int[] defenderGear, CombatLevels attackerLevels, CombatLevels defenderLevels,
+		AnimationData animationData, boolean success, boolean successfulOffensive, boolean defensiveAugurySuccess,
+		RingData ringUsed, RingData bonusRing, boolean isLmsFight, ConfigSnapshot config)
+	{
+		this.attackerGear = attackerGear;
+		this.defenderGear = defenderGear;
+		this.attackerLevels = attackerLevels;
+		this.defenderLevels = defenderLevels;
+		this.animationData = animationData;
+		this.success = success;
+		this.successfulOffensive = successfulOffensive;
+		this.defensiveAugurySuccess = defensiveAugurySuccess;
+		this.ringUsed = ringUsed;
+		this.bonusRing = bonusRing;
+		this.isLmsFight = isLmsFight;
+		this.config = config;
+	}
+}
@@ -27,7 +27,7 @@ package matsyir.pvpperformancetracker.models;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import lombok.Getter;
-import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT;
 import net.runelite.api.Client;
 import net.runelite.api.Skill;
 
@@ -35,14 +35,10 @@ import net.runelite.api.Skill;
 @Getter
 public class CombatLevels
 {
+	// a copy of the configured levels of the current config snapshot.
 	public static CombatLevels getConfigLevels()
 	{
-		return new CombatLevels(CONFIG.attackLevel(),
-			CONFIG.strengthLevel(),
-			CONFIG.defenceLevel(),
-			CONFIG.rangedLevel(),
-			CONFIG.magicLevel(),
-			99);
+		return CONFIG_SNAPSHOT.getConfigLevels();
 	}
 
 	@Expose
@@ -74,6 +70,11 @@ public class CombatLevels
 		this.hp = hp;
 	}
 
+	public CombatLevels(CombatLevels levels)
+	{
+		this(levels.atk, levels.str, levels.def, levels.range, levels.mage, levels.hp);
+	}
+
 	public CombatLevels(Client client)
 	{
 		this.atk = client.getBoostedSkillLevel(Skill.ATTACK);
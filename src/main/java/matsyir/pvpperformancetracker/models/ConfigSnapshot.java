@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.models;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import matsyir.pvpperformancetracker.PvpPerformanceTrackerConfig;
+
+// Immutable copy of the config values used while tracking and calculating attacks, taken once whenever the
+// config changes rather than reading each value through the config proxy for every attack. Damage calculations
+// hold on to the snapshot they started with, so a whole fight or recalculation uses the same settings.
+@Getter
+public class ConfigSnapshot
+{
+	private final RingData ringChoice;
+	private final RangeAmmoData.BoltAmmo boltChoice;
+	private final RangeAmmoData.StrongBoltAmmo strongBoltChoice;
+	private final RangeAmmoData.DartAmmo bpDartChoice;
+	@Getter(AccessLevel.NONE)
+	private final CombatLevels configLevels; // CombatLevels are mutable, so only copies are handed out
+	private final boolean dlongIsVls;
+	private final boolean fightLogInChat;
+
+	public ConfigSnapshot(PvpPerformanceTrackerConfig config)
+	{
+		ringChoice = config.ringChoice();
+		boltChoice = config.boltChoice();
+		strongBoltChoice = config.strongBoltChoice();
+		bpDartChoice = config.bpDartChoice();
+		configLevels = new CombatLevels(config.attackLevel(),
+			config.strengthLevel(),
+			config.defenceLevel(),
+			config.rangedLevel(),
+			config.magicLevel(),
+			99);
+		dlongIsVls = config.dlongIsVls();
+		fightLogInChat = config.fightLogInChat();
+	}
+
+	// returns a copy of the configured levels, so callers can't modify this snapshot's.
+	public CombatLevels getConfigLevels()
+	{
+		return new CombatLevels(configLevels);
+	}
+}
@@ -24,10 +24,9 @@
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 package matsyir.pvpperformancetracker.models;
-import java.util.HashMap;
-import java.util.Map;
 import lombok.Getter;
 import matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin;
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.fixItemId;
 import net.runelite.api.ItemID;
 import net.runelite.api.kit.KitType;
 import org.apache.commons.lang3.ArrayUtils;
@@ -159,7 +158,8 @@ public enum EquipmentData
 	DRAGON_WARHAMMER(ItemID.DRAGON_WARHAMMER, ItemID.DRAGON_WARHAMMER_20785),
 	VOIDWAKER(ItemID.VOIDWAKER, ItemID.VOIDWAKER_27869);
 
-	private static final Map<Integer, EquipmentData> itemData = new HashMap<>();
+	// lookup table indexed by item id, so lookups don't need to box the id. Only as large as the highest id used.
+	private static final EquipmentData[] itemData;
 
 	@Getter
 	private final int itemId; // main id to be used for stat lookups
@@ -181,23 +181,29 @@ public enum EquipmentData
 	// Get the saved EquipmentData for a given itemId (could be null)
 	public static EquipmentData fromId(int itemId)
 	{
-		return itemData.get(itemId);
+		return itemId >= 0 && itemId < itemData.length ? itemData[itemId] : null;
 	}
 
 	// get currently selected weapon ammo, based on weapon used & configured bolt choice.
 	public static RangeAmmoData getWeaponAmmo(EquipmentData weapon)
+	{
+		return getWeaponAmmo(weapon, PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT);
+	}
+
+	// get the weapon ammo based on weapon used & the bolt choice of the given config snapshot.
+	public static RangeAmmoData getWeaponAmmo(EquipmentData weapon, ConfigSnapshot config)
 	{
 		if (ArrayUtils.contains(RangeAmmoData.BoltAmmo.WEAPONS_USING, weapon))
 		{
-			return PvpPerformanceTrackerPlugin.CONFIG.boltChoice();
+			return config.getBoltChoice();
 		}
 		else if (ArrayUtils.contains(RangeAmmoData.StrongBoltAmmo.WEAPONS_USING, weapon))
 		{
-			return PvpPerformanceTrackerPlugin.CONFIG.strongBoltChoice();
+			return config.getStrongBoltChoice();
 		}
 		else if (ArrayUtils.contains(RangeAmmoData.DartAmmo.WEAPONS_USING, weapon))
 		{
-			return PvpPerformanceTrackerPlugin.CONFIG.bpDartChoice();
+			return config.getBpDartChoice();
 		}
 		else if (weapon == HEAVY_BALLISTA || weapon == LIGHT_BALLISTA)
 		{
@@ -217,14 +223,35 @@ public enum EquipmentData
 
 	static
 	{
+		int maxId = 0;
+		for (EquipmentData data : EquipmentData.values())
+		{
+			maxId = Math.max(maxId, data.getItemId());
+			if (data.additionalIds != null)
+			{
+				for (int id : data.additionalIds)
+				{
+					maxId = Math.max(maxId, id);
+				}
+			}
+		}
+
+		// the first EquipmentData using an id keeps it
+		itemData = new EquipmentData[maxId + 1];
 		for (EquipmentData data : EquipmentData.values())
 		{
-			itemData.putIfAbsent(data.getItemId(), data);
+			if (itemData[data.getItemId()] == null)
+			{
+				itemData[data.getItemId()] = data;
+			}
 			if (data.additionalIds != null && data.additionalIds.length > 0)
 			{
 				for (int id : data.additionalIds)
 				{
-					itemData.putIfAbsent(id, data);
+					if (itemData[id] == null)
+					{
+						itemData[id] = data;
+					}
 				}
 			}
 		}
@@ -252,16 +279,17 @@ public enum EquipmentData
 		// return a void style for a given PlayerComposition
 		public static VoidStyle getVoidStyleFor(int[] playerComposition)
 		{
-			if (playerComposition == null) { return NONE; }
-			playerComposition = PvpPerformanceTrackerPlugin.fixItemIds(playerComposition);
+			if (playerComposition == null || playerComposition.length <= KitType.HANDS.getIndex()) { return NONE; }
 
-			EquipmentData gloves = EquipmentData.fromId(playerComposition[KitType.HANDS.getIndex()]);
+			// fix each id as it is looked up rather than copying the whole composition, and check the gloves
+			// first since every void set needs them.
+			EquipmentData gloves = EquipmentData.fromId(fixItemId(playerComposition[KitType.HANDS.getIndex()]));
 
 			if (gloves != EquipmentData.VOID_GLOVES) { return NONE; }
 
-			EquipmentData helm = EquipmentData.fromId(playerComposition[KitType.HEAD.getIndex()]);
-			EquipmentData torso = EquipmentData.fromId(playerComposition[KitType.TORSO.getIndex()]);
-			EquipmentData legs = EquipmentData.fromId(playerComposition[KitType.LEGS.getIndex()]);
+			EquipmentData helm = EquipmentData.fromId(fixItemId(playerComposition[KitType.HEAD.getIndex()]));
+			EquipmentData torso = EquipmentData.fromId(fixItemId(playerComposition[KitType.TORSO.getIndex()]));
+			EquipmentData legs = EquipmentData.fromId(fixItemId(playerComposition[KitType.LEGS.getIndex()]));
 
 			if (torso == EquipmentData.VOID_BODY && legs == EquipmentData.VOID_LEGS)
 			{
@@ -31,10 +31,13 @@ import java.awt.Color;
 import java.math.RoundingMode;
 import java.text.NumberFormat;
 import java.time.Instant;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import matsyir.pvpperformancetracker.controllers.PvpDamageCalc;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
+import static matsyir.pvpperformancetracker.models.Fnv1a.OFFSET_BASIS;
+import static matsyir.pvpperformancetracker.models.Fnv1a.hashLong;
+import static matsyir.pvpperformancetracker.models.Fnv1a.hashString;
 import net.runelite.api.GraphicID;
 import net.runelite.api.HeadIcon;
 import net.runelite.api.Player;
@@ -80,7 +83,7 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 	@Expose
 	@SerializedName("G")
 	// current attacker's gear. The attacker is not necessarily the competitor.
-	// Set using PlayerComposition::getEquipmentIds
+	// Set using PlayerComposition::getEquipmentIds, interned through the GearDictionary.
 	private int[] attackerGear;
 	@Expose
 	@SerializedName("O")
@@ -121,7 +124,12 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 	@SerializedName("p")
 	private int attackerOffensivePray; // offensive pray saved as SpriteID since that's all we use it for.
 
-	public FightLogEntry(Player attacker, Player defender, PvpDamageCalc pvpDamageCalc, int attackerOffensivePray, CombatLevels levels, AnimationData animationData)
+	@Getter(AccessLevel.NONE)
+	private long fingerprint; // not serialized, computed on demand by getFingerprint().
+	@Getter(AccessLevel.NONE)
+	private boolean fingerprintComputed;
+
+	public FightLogEntry(Player attacker, Player defender, DamageResult damageResult, int attackerOffensivePray, CombatLevels levels, AnimationData animationData)
 	{
 		this.isFullEntry = true;
 
@@ -133,18 +141,18 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 		this.animationData = animationData;
 
 		// attacker data
-		this.attackerGear = attacker.getPlayerComposition().getEquipmentIds();
+		this.attackerGear = GearDictionary.intern(attacker.getPlayerComposition().getEquipmentIds());
 		this.attackerOverhead = attacker.getOverheadIcon();
 
-		this.deservedDamage = pvpDamageCalc.getAverageHit();
-		this.accuracy = pvpDamageCalc.getAccuracy();
-		this.minHit = pvpDamageCalc.getMinHit();
-		this.maxHit = pvpDamageCalc.getMaxHit();
+		this.deservedDamage = damageResult.getAverageHit();
+		this.accuracy = damageResult.getAccuracy();
+		this.minHit = damageResult.getMinHit();
+		this.maxHit = damageResult.getMaxHit();
 		this.splash = animationData.attackStyle == AnimationData.AttackStyle.MAGIC && defender.getGraphic() == GraphicID.SPLASH;
 		this.attackerLevels = levels; // CAN BE NULL
 
 		// defender data
-		this.defenderGear = defender.getPlayerComposition().getEquipmentIds();
+		this.defenderGear = GearDictionary.intern(defender.getPlayerComposition().getEquipmentIds());
 		this.defenderOverhead = defender.getOverheadIcon();
 		this.attackerOffensivePray = attackerOffensivePray;
 	}
@@ -164,7 +172,7 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 	}
 
 	// create new fightlogentry based on existing entry but new damage calcs (for fight analysis/stat merging)
-	public FightLogEntry(FightLogEntry e, PvpDamageCalc pvpDamageCalc)
+	public FightLogEntry(FightLogEntry e, DamageResult damageResult)
 	{
 		this.isFullEntry = true;
 
@@ -177,10 +185,10 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 		this.attackerGear = e.attackerGear;
 		this.attackerOverhead = e.attackerOverhead;
 		this.animationData = e.animationData;
-		this.deservedDamage = pvpDamageCalc.getAverageHit();
-		this.accuracy = pvpDamageCalc.getAccuracy();
-		this.minHit = pvpDamageCalc.getMinHit();
-		this.maxHit = pvpDamageCalc.getMaxHit();
+		this.deservedDamage = damageResult.getAverageHit();
+		this.accuracy = damageResult.getAccuracy();
+		this.minHit = damageResult.getMinHit();
+		this.maxHit = damageResult.getMaxHit();
 		this.splash = e.splash;
 		this.attackerLevels = e.attackerLevels;
 
@@ -190,6 +198,41 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 		this.attackerOffensivePray = e.attackerOffensivePray;
 	}
 
+	// entry decoded from the binary fight history format, see FightHistoryCodec
+	public FightLogEntry(long time, int tick, boolean isFullEntry, int[] attackerGear, HeadIcon attackerOverhead,
+		AnimationData animationData, double deservedDamage, double accuracy, int maxHit, int minHit, boolean splash,
+		CombatLevels attackerLevels, int[] defenderGear, HeadIcon defenderOverhead, int attackerOffensivePray)
+	{
+		this.isFullEntry = isFullEntry;
+
+		// general
+		this.time = time;
+		this.tick = tick;
+
+		// attacker data
+		this.attackerGear = attackerGear;
+		this.attackerOverhead = attackerOverhead;
+		this.animationData = animationData;
+		this.deservedDamage = deservedDamage;
+		this.accuracy = accuracy;
+		this.maxHit = maxHit;
+		this.minHit = minHit;
+		this.splash = splash;
+		this.attackerLevels = attackerLevels;
+
+		// defender data
+		this.defenderGear = defenderGear;
+		this.defenderOverhead = defenderOverhead;
+		this.attackerOffensivePray = attackerOffensivePray;
+	}
+
+	// share gear arrays with every other entry using the same gear, for entries deserialized from json.
+	public void internGear()
+	{
+		attackerGear = GearDictionary.intern(attackerGear);
+		defenderGear = GearDictionary.intern(defenderGear);
+	}
+
 	// randomized entry used for testing
 	public FightLogEntry(int [] attackerGear, int deservedDamage, double accuracy, int minHit, int maxHit, int [] defenderGear, String attackerName)
 	{
@@ -208,6 +251,37 @@ public class FightLogEntry implements Comparable<FightLogEntry>
 	}
 
 
+	// 64-bit hash of the fields used to match the same attack logged by both clients when merging fights: attacker
+	// name, animation, gear, overheads, success and splash. Computed once, so attackerName must be set beforehand,
+	// as it isn't serialized.
+	public long getFingerprint()
+	{
+		if (fingerprintComputed) { return fingerprint; }
+
+		long hash = hashString(OFFSET_BASIS, attackerName);
+		hash = hashLong(hash, animationData == null ? -1 : animationData.ordinal());
+		hash = hashGear(hash, attackerGear);
+		hash = hashGear(hash, defenderGear);
+		hash = hashLong(hash, attackerOverhead == null ? -1 : attackerOverhead.ordinal());
+		hash = hashLong(hash, defenderOverhead == null ? -1 : defenderOverhead.ordinal());
+		hash = hashLong(hash, animationData != null && success() ? 1 : 0);
+		hash = hashLong(hash, splash ? 1 : 0);
+		fingerprint = hash;
+		fingerprintComputed = true;
+		return hash;
+	}
+
+	private static long hashGear(long hash, int[] gear)
+	{
+		if (gear == null) { return hashLong(hash, -1); }
+
+		for (int itemId : gear)
+		{
+			hash = hashLong(hash, itemId);
+		}
+		return hashLong(hash, gear.length);
+	}
+
 	public boolean success()
 	{
 		return animationData.attackStyle.getProtection() != defenderOverhead;
@@ -25,6 +25,7 @@
 
 package matsyir.pvpperformancetracker.models;
 
+import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG_SNAPSHOT;
 import org.apache.commons.lang3.ArrayUtils;
 
 public enum FightType
@@ -32,7 +33,7 @@ public enum FightType
 	LMS_MAXMED(new CombatLevels(118, 118, 75, 112, 99, 99)),
 	LMS_ZERK(new CombatLevels(91, 118, 45, 112, 99, 99)),
 	LMS_1DEF(new CombatLevels(91, 118, 1, 112, 99, 99)),
-	NORMAL(CombatLevels.getConfigLevels());
+	NORMAL(null); // uses the configured levels
 
 	private static FightType[] LMS_TYPES = { LMS_MAXMED, LMS_ZERK, LMS_1DEF };
 
@@ -43,10 +44,15 @@ public enum FightType
 	}
 
 	public CombatLevels getCombatLevelsForType()
+	{
+		return getCombatLevelsForType(CONFIG_SNAPSHOT);
+	}
+
+	public CombatLevels getCombatLevelsForType(ConfigSnapshot config)
 	{
 		if (this == NORMAL)
 		{
-			return CombatLevels.getConfigLevels();
+			return config.getConfigLevels();
 		}
 
 		return combatLevelsForType;
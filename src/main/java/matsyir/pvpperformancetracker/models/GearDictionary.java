@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.models;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.EqualsAndHashCode;
+
+// Interns gear arrays (as returned by PlayerComposition::getEquipmentIds), so every fight log entry
+// with the same gear shares a single array. Players only cycle between a handful of loadouts during
+// a fight, so this saves a lot of duplicate arrays, and interned gear can be compared by reference.
+// Interned arrays are shared, so they must never be modified. They are only weakly held, so gear no
+// longer used by any fight log entry is dropped rather than kept for as long as the client runs.
+public class GearDictionary
+{
+	// keys hold their own copy of the gear, since a key referencing its value would keep it from being collected.
+	private static final Cache<GearKey, int[]> GEAR = CacheBuilder.newBuilder().weakValues().build();
+
+	// returns the shared array holding the same gear, adding a copy of it if it's new.
+	public static int[] intern(int[] gear)
+	{
+		if (gear == null) { return null; }
+
+		int[] interned = GEAR.getIfPresent(new GearKey(gear));
+		if (interned != null) { return interned; }
+
+		// copy the gear, since the given array may be modified later on, e.g. the player composition's.
+		int[] copy = gear.clone();
+		interned = GEAR.asMap().putIfAbsent(new GearKey(gear.clone()), copy);
+		return interned != null ? interned : copy;
+	}
+
+	// array wrapper comparing the gear's contents, for use as a key.
+	@EqualsAndHashCode
+	private static class GearKey
+	{
+		private final int[] gear;
+
+		private GearKey(int[] gear)
+		{
+			this.gear = gear;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.models;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import lombok.Getter;
+
+// Immutable probability mass function over the damage of one or more attacks: getProbability(d) is the chance
+// of dealing exactly d damage. Single attacks are built by PvpDamageCalc alongside their average hit, and a
+// fight's total damage distribution is the sum of all of its attacks, see HitDistribution::sum.
+public class HitDistribution
+{
+	// distribution of an attack that can't deal any damage.
+	public static final HitDistribution NONE = new HitDistribution(new double[] { 1 });
+
+	// convolutions where both sides are at least this long use FFT, O(n log n) rather than the direct O(n * m).
+	private static final int FFT_THRESHOLD = 64;
+
+	// indexed by damage, starting at 0.
+	private final double[] probabilities;
+	@Getter
+	private final double mean;
+	@Getter
+	private final double variance;
+
+	public HitDistribution(double[] probabilities)
+	{
+		this.probabilities = probabilities;
+
+		double mean = 0;
+		for (int i = 0; i < probabilities.length; i++)
+		{
+			mean += i * probabilities[i];
+		}
+		double variance = 0;
+		for (int i = 0; i < probabilities.length; i++)
+		{
+			variance += (i - mean) * (i - mean) * probabilities[i];
+		}
+		this.mean = mean;
+		this.variance = variance;
+	}
+
+	public int getMaxDamage()
+	{
+		return probabilities.length - 1;
+	}
+
+	public double getProbability(int damage)
+	{
+		return damage < 0 || damage >= probabilities.length ? 0 : probabilities[damage];
+	}
+
+	// chance of dealing at most the given damage.
+	public double getCumulativeProbability(int damage)
+	{
+		double total = 0;
+		for (int i = 0; i <= damage && i < probabilities.length; i++)
+		{
+			total += probabilities[i];
+		}
+		return Math.min(total, 1);
+	}
+
+	// percentile (0-100) of the given damage within this distribution, counting half of the chance to deal exactly
+	// that damage, so dealing the median damage is around 50: below 50 is unlucky, above 50 is lucky.
+	public double getPercentile(int damage)
+	{
+		// checked first, as damage - 1 would overflow for Integer.MIN_VALUE.
+		if (damage < 0) { return 0; }
+		if (damage > getMaxDamage()) { return 100; }
+
+		return Math.min(100, Math.max(0, (getCumulativeProbability(damage - 1) + getProbability(damage) / 2) * 100));
+	}
+
+	// distribution of this attack's damage plus the other's.
+	public HitDistribution add(HitDistribution other)
+	{
+		return new HitDistribution(convolve(probabilities, other.probabilities));
+	}
+
+	// distribution of the total damage of all the given attacks. Distributions are added pairwise through a FIFO
+	// queue, each sum going to the back, so they are combined like a balanced tree (not by size): every attack
+	// takes part in about log2(n) additions, and long fights end up convolving a few long distributions with FFT
+	// instead of adding each attack to an ever growing total.
+	public static HitDistribution sum(Collection<HitDistribution> distributions)
+	{
+		if (distributions.isEmpty()) { return NONE; }
+
+		ArrayDeque<HitDistribution> queue = new ArrayDeque<>(distributions);
+		while (queue.size() > 1)
+		{
+			queue.addLast(queue.pollFirst().add(queue.pollFirst()));
+		}
+		return queue.poll();
+	}
+
+	static double[] convolve(double[] a, double[] b)
+	{
+		double[] result = Math.min(a.length, b.length) < FFT_THRESHOLD ? convolveDirect(a, b) : convolveFft(a, b);
+		// FFT rounding errors can leave tiny negative probabilities.
+		for (int i = 0; i < result.length; i++)
+		{
+			if (result[i] < 0) { result[i] = 0; }
+		}
+		return result;
+	}
+
+	private static double[] convolveDirect(double[] a, double[] b)
+	{
+		double[] result = new double[a.length + b.length - 1];
+		for (int i = 0; i < a.length; i++)
+		{
+			if (a[i] == 0) { continue; }
+
+			for (int j = 0; j < b.length; j++)
+			{
+				result[i + j] += a[i] * b[j];
+			}
+		}
+		return result;
+	}
+
+	private static double[] convolveFft(double[] a, double[] b)
+	{
+		int resultLength = a.length + b.length - 1;
+		int n = Integer.highestOneBit(resultLength);
+		if (n < resultLength) { n <<= 1; }
+
+		double[] aReal = new double[n], aImag = new double[n];
+		double[] bReal = new double[n], bImag = new double[n];
+		System.arraycopy(a, 0, aReal, 0, a.length);
+		System.arraycopy(b, 0, bReal, 0, b.length);
+		fft(aReal, aImag, false);
+		fft(bReal, bImag, false);
+
+		for (int i = 0; i < n; i++)
+		{
+			double real = aReal[i] * bReal[i] - aImag[i] * bImag[i];
+			aImag[i] = aReal[i] * bImag[i] + aImag[i] * bReal[i];
+			aReal[i] = real;
+		}
+		fft(aReal, aImag, true);
+
+		double[] result = new double[resultLength];
+		for (int i = 0; i < resultLength; i++)
+		{
+			result[i] = aReal[i] / n;
+		}
+		return result;
+	}
+
+	// in-place iterative radix-2 FFT, the length must be a power of 2. The inverse isn't divided by the length.
+	private static void fft(double[] real, double[] imag, boolean inverse)
+	{
+		int n = real.length;
+		for (int i = 1, j = 0; i < n; i++)
+		{
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1)
+			{
+				j ^= bit;
+			}
+			j ^= bit;
+
+			if (i < j)
+			{
+				double temp = real[i];
+				real[i] = real[j];
+				real[j] = temp;
+				temp = imag[i];
+				imag[i] = imag[j];
+				imag[j] = temp;
+			}
+		}
+
+		for (int length = 2; length <= n; length <<= 1)
+		{
+			double angle = 2 * Math.PI / length * (inverse ? 1 : -1);
+			double stepReal = Math.cos(angle), stepImag = Math.sin(angle);
+			for (int i = 0; i < n; i += length)
+			{
+				double wReal = 1, wImag = 0;
+				for (int j = 0; j < length / 2; j++)
+				{
+					int u = i + j, v = i + j + length / 2;
+					double vReal = real[v] * wReal - imag[v] * wImag;
+					double vImag = real[v] * wImag + imag[v] * wReal;
+					real[v] = real[u] - vReal;
+					imag[v] = imag[u] - vImag;
+					real[u] += vReal;
+					imag[u] += vImag;
+
+					double nextReal = wReal * stepReal - wImag * stepImag;
+					wImag = wReal * stepImag + wImag * stepReal;
+					wReal = nextReal;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.models;
+
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.Getter;
+
+// Special attacks that have been implemented in the damage calculations, by the weapon using them. Each one declares
+// its accuracy & damage modifiers, min hit and how its average hit is calculated (HitType), so PvpDamageCalc only
+// needs one lookup to handle any of them. Modifiers of 1 or values of 0 mean the special attack doesn't change it.
+@Getter
+public enum SpecialAttackData
+{
+	// weapon, ranged, hit type, accuracy modifier, damage modifier
+	ARMADYL_GODSWORD(EquipmentData.ARMADYL_GODSWORD, false, HitType.REGULAR, 2, 1.375),
+	DRAGON_DAGGER(EquipmentData.DRAGON_DAGGER, false, HitType.REGULAR, 1.25, 2.3),
+	DRAGON_WARHAMMER(EquipmentData.DRAGON_WARHAMMER, false, HitType.REGULAR, 1, 1.5),
+	DRAGON_CLAWS(EquipmentData.DRAGON_CLAWS, false, HitType.DRAGON_CLAWS, 1, 1),
+	ARMADYL_CROSSBOW(EquipmentData.ARMADYL_CROSSBOW, true, HitType.REGULAR, 2, 1),
+	HEAVY_BALLISTA(EquipmentData.HEAVY_BALLISTA, true, HitType.REGULAR, 1.25, 1.25),
+	// weapon, ranged, hit type, accuracy modifier, damage modifier, min hit modifier, fixed min hit, fixed damage,
+	// defence modifier, fixed accuracy
+	ANCIENT_GODSWORD(EquipmentData.ANCIENT_GODSWORD, false, HitType.REGULAR, 2, 1.1, 0, 0, 25, 1, 0),
+	VESTAS_LONGSWORD(EquipmentData.VESTAS_LONGSWORD, false, HitType.RAISED_MIN_HIT, 1, 1.2, .2, 0, 0, .25, 0),
+	STATIUS_WARHAMMER(EquipmentData.STATIUS_WARHAMMER, false, HitType.RAISED_MIN_HIT, 1, 1.25, .25, 0, 0, 1, 0),
+	VOIDWAKER(EquipmentData.VOIDWAKER, false, HitType.MIN_TO_MAX_HIT, 1, 1.5, .5, 0, 0, 1, 1),
+	OSMUMTENS_FANG(EquipmentData.OSMUMTENS_FANG, false, HitType.OSMUMTENS_FANG, 1.5, 1, .15, 0, 0, 1, 0),
+	DARK_BOW(EquipmentData.DARK_BOW, true, HitType.RAISED_MIN_HIT_ON_MISS, 1, 3, 0, 16, 0, 1, 0);
+
+	private static final Map<EquipmentData, SpecialAttackData> BY_WEAPON = new EnumMap<>(EquipmentData.class);
+
+	private final EquipmentData weapon;
+	private final boolean ranged; // if its modifiers apply to ranged attacks rather than melee attacks
+	private final HitType hitType;
+	private final double accuracyModifier;
+	// for ranged weapons, this replaces the ammo's damage modifier rather than being applied on top of it.
+	private final double dmgModifier;
+	private final double minHitModifier; // min hit as a fraction of the max hit
+	private final int fixedMinHit;
+	private final int fixedDamage; // added to every hit, including misses
+	private final double defenceModifier; // applied to the defender's stab defence roll rather than their usual defence
+	private final double fixedAccuracy;
+
+	SpecialAttackData(EquipmentData weapon, boolean ranged, HitType hitType, double accuracyModifier, double dmgModifier)
+	{
+		this(weapon, ranged, hitType, accuracyModifier, dmgModifier, 0, 0, 0, 1, 0);
+	}
+
+	SpecialAttackData(EquipmentData weapon, boolean ranged, HitType hitType, double accuracyModifier, double dmgModifier,
+		double minHitModifier, int fixedMinHit, int fixedDamage, double defenceModifier, double fixedAccuracy)
+	{
+		this.weapon = weapon;
+		this.ranged = ranged;
+		this.hitType = hitType;
+		this.accuracyModifier = accuracyModifier;
+		this.dmgModifier = dmgModifier;
+		this.minHitModifier = minHitModifier;
+		this.fixedMinHit = fixedMinHit;
+		this.fixedDamage = fixedDamage;
+		this.defenceModifier = defenceModifier;
+		this.fixedAccuracy = fixedAccuracy;
+	}
+
+	static
+	{
+		for (SpecialAttackData data : values())
+		{
+			BY_WEAPON.put(data.weapon, data);
+		}
+	}
+
+	// get the special attack of the weapon, or null if it has none implemented.
+	public static SpecialAttackData fromWeapon(EquipmentData weapon)
+	{
+		return weapon == null ? null : BY_WEAPON.get(weapon);
+	}
+
+	public int getMinHit(int maxHit)
+	{
+		return fixedMinHit > 0 ? fixedMinHit : (int) (maxHit * minHitModifier);
+	}
+
+	// how the hits of an attack are rolled, which determines how its average hit is calculated.
+	public enum HitType
+	{
+		REGULAR(false),
+		// rolls below the min hit are raised to the min hit, making it more common than other hits.
+		RAISED_MIN_HIT(false),
+		// same as RAISED_MIN_HIT, but the min hit also applies when the attack misses.
+		RAISED_MIN_HIT_ON_MISS(false),
+		// rolls between the min & max hit.
+		MIN_TO_MAX_HIT(false),
+		// 4 hits where each miss lowers the remaining hits' damage, see PvpDamageCalc::getAverageHit.
+		DRAGON_CLAWS(false),
+		// accuracy rolls twice and hits roll between the min & max hit, also for regular attacks.
+		OSMUMTENS_FANG(true);
+
+		@Getter
+		private final boolean regularAttacks; // if it also applies when not using the special attack
+
+		HitType(boolean regularAttacks)
+		{
+			this.regularAttacks = regularAttacks;
+		}
+	}
+}
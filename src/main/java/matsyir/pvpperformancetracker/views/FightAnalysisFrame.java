@@ -33,21 +33,28 @@ import java.awt.dnd.DnDConstants;
 import java.awt.dnd.DropTarget;
 import java.awt.dnd.DropTargetDropEvent;
 import java.awt.event.ItemEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
 import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JRootPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import lombok.extern.slf4j.Slf4j;
@@ -55,6 +62,8 @@ import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN_I
 import matsyir.pvpperformancetracker.controllers.FightPerformance;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
 import matsyir.pvpperformancetracker.controllers.AnalyzedFightPerformance;
+import matsyir.pvpperformancetracker.controllers.BatchFightAnalysis;
+import matsyir.pvpperformancetracker.controllers.Fighter;
 import net.runelite.client.ui.ColorScheme;
 import net.runelite.client.util.LinkBrowser;
 import org.pushingpixels.substance.internal.SubstanceSynapse;
@@ -65,6 +74,7 @@ public class FightAnalysisFrame extends JFrame
 	public static String WIKI_HELP_URL = "https://github.com/Matsyir/pvp-performance-tracker/wiki#fight-analysisfight-merge";
 	private static String WINDOW_TITLE = "PvP Performance Tracker: Fight Analysis";
 	private static final NumberFormat nf = NumberFormat.getInstance();
+	private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("HH:mm:ss 'on' yyyy/MM/dd");
 
 	private JPanel mainPanel;
 	private JTextField mainFightJsonInput;
@@ -73,6 +83,8 @@ public class FightAnalysisFrame extends JFrame
 	private FightPerformance mainFight;
 	private FightPerformance opponentFight;
 	private AnalyzedFightPerformance analyzedFight;
+	// set while viewing the results of a batch analysis, so a merged fight's view can go back to them.
+	private BatchFightAnalysis batchAnalysis;
 
 	static
 	{
@@ -252,6 +264,15 @@ public class FightAnalysisFrame extends JFrame
 		confirmButton.addActionListener(e -> performAnalysis());
 		confirmButton.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+		// batch analysis button
+		JButton batchButton = new JButton("Batch Merge Folder...");
+		batchButton.setToolTipText("<html>Merge every fight exported into a folder, e.g the fight histories of a whole team.<br/>" +
+			"Fights are paired up automatically by their fighters' names and fight times.</html>");
+		batchButton.setSize(256, 32);
+		batchButton.setMaximumSize(new Dimension(256, 32));
+		batchButton.addActionListener(e -> performBatchAnalysis());
+		batchButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+
 		// add all components
 		mainPanel.add(wikiLinkLabel);
 		mainPanel.add(Box.createRigidArea(new Dimension(0, 4)));
@@ -262,6 +283,8 @@ public class FightAnalysisFrame extends JFrame
 		mainPanel.add(textAreaLine);
 		mainPanel.add(Box.createRigidArea(new Dimension(0, 16)));
 		mainPanel.add(confirmButton);
+		mainPanel.add(Box.createRigidArea(new Dimension(0, 8)));
+		mainPanel.add(batchButton);
 
 		validate();
 		repaint();
@@ -325,6 +348,96 @@ public class FightAnalysisFrame extends JFrame
 		}
 	}
 
+	// choose a folder of exported fights, then merge all of them in the background, see BatchFightAnalysis.
+	private void performBatchAnalysis()
+	{
+		JFileChooser folderChooser = new JFileChooser();
+		folderChooser.setDialogTitle("Choose a folder of exported fight data");
+		folderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		if (folderChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) { return; }
+
+		mainPanel.removeAll();
+		JLabel loadingLabel = new JLabel("<html><strong>Merging fights from " + folderChooser.getSelectedFile().getName() + "...</strong></html>");
+		loadingLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+		mainPanel.add(loadingLabel);
+		validate();
+		repaint();
+
+		PLUGIN.analyzeFightFolder(folderChooser.getSelectedFile(), this::displayBatchAnalysis);
+	}
+
+	private void displayBatchAnalysis(BatchFightAnalysis batch)
+	{
+		batchAnalysis = batch;
+		mainPanel.removeAll();
+		setTitle(WINDOW_TITLE + " - Batch");
+
+		List<AnalyzedFightPerformance> fights = batch.getMergedFights();
+
+		// summary label
+		JLabel summaryLabel = new JLabel("<html>Read " + batch.getFightCount() + " fights from " + batch.getFileCount() +
+			" files" + (batch.getInvalidFileCount() > 0 ? " (" + batch.getInvalidFileCount() + " invalid)" : "") +
+			". Merged " + fights.size() + " out of " + batch.getPairCount() + " matching pairs of fights" +
+			(batch.getFailedMergeCount() > 0 ? " (" + batch.getFailedMergeCount() + " could not be merged)" : "") +
+			", " + batch.getUnpairedFightCount() + " fights had no match.<br/>Double click a fight for more details.</html>");
+		summaryLabel.setForeground(Color.WHITE);
+		summaryLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+		// merged fights table
+		Object[][] stats = new Object[fights.size()][6];
+		for (int i = 0; i < fights.size(); i++)
+		{
+			AnalyzedFightPerformance fight = fights.get(i);
+			Fighter competitor = fight.getCompetitor();
+			Fighter opponent = fight.getOpponent();
+			stats[i][0] = competitor.getName();
+			stats[i][1] = opponent.getName();
+			stats[i][2] = DATE_FORMAT.format(new Date(fight.getLastFightTime()));
+			stats[i][3] = competitor.getOffPrayStats(true) + " - " + opponent.getOffPrayStats(true);
+			stats[i][4] = nf.format(competitor.getDeservedDamage()) + " - " + nf.format(opponent.getDeservedDamage());
+			stats[i][5] = competitor.getDamageDealt() + " - " + opponent.getDamageDealt();
+		}
+		String[] header = { "Fighter 1", "Fighter 2", "Ended", "Off-Pray Hits", "Deserved Dmg", "Dmg Dealt" };
+		JTable table = new JTable(stats, header);
+		table.setDefaultEditor(Object.class, null);
+		table.addMouseListener(new MouseAdapter()
+		{
+			@Override
+			public void mouseClicked(MouseEvent e)
+			{
+				int row = table.rowAtPoint(e.getPoint());
+				if (e.getClickCount() < 2 || row < 0) { return; }
+
+				analyzedFight = fights.get(row);
+				mainFight = analyzedFight.getMainFight();
+				opponentFight = analyzedFight.getOpposingFight();
+				displayAnalysis();
+			}
+		});
+		JScrollPane tableScrollPane = new JScrollPane(table);
+		tableScrollPane.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+		// back to setup/config button
+		JButton backButton = new JButton("<html><strong>Back</strong></html>");
+		backButton.setSize(256, 32);
+		backButton.setMaximumSize(new Dimension(256, 32));
+		backButton.addActionListener(e ->
+		{
+			batchAnalysis = null;
+			initializeFrame();
+		});
+		backButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+		mainPanel.add(summaryLabel);
+		mainPanel.add(Box.createRigidArea(new Dimension(0, 8)));
+		mainPanel.add(tableScrollPane);
+		mainPanel.add(Box.createRigidArea(new Dimension(0, 8)));
+		mainPanel.add(backButton);
+
+		validate();
+		repaint();
+	}
+
 	private void displayAnalysis()
 	{
 		mainPanel.removeAll();
@@ -345,7 +458,17 @@ public class FightAnalysisFrame extends JFrame
 		JButton backButton = new JButton("<html><strong>Back</strong></html>");
 		backButton.setSize(256, 32);
 		backButton.setMaximumSize(new Dimension(256, 32));
-		backButton.addActionListener(e -> initializeFrame());
+		backButton.addActionListener(e ->
+		{
+			if (batchAnalysis != null)
+			{
+				displayBatchAnalysis(batchAnalysis);
+			}
+			else
+			{
+				initializeFrame();
+			}
+		});
 		backButton.setAlignmentX(Component.CENTER_ALIGNMENT);
 
 
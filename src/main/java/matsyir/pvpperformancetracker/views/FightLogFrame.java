@@ -45,8 +45,10 @@ import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableCellRenderer;
 import lombok.extern.slf4j.Slf4j;
 import matsyir.pvpperformancetracker.controllers.AnalyzedFightPerformance;
+import matsyir.pvpperformancetracker.controllers.Fighter;
 import matsyir.pvpperformancetracker.models.AnimationData;
 import matsyir.pvpperformancetracker.models.FightLogEntry;
+import matsyir.pvpperformancetracker.models.HitDistribution;
 import matsyir.pvpperformancetracker.controllers.FightPerformance;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.PLUGIN_ICON;
@@ -194,10 +196,29 @@ public class FightLogFrame extends JFrame
 
 		mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
 
+		// both fighters' deserved damage spread & luck, from their logged attacks' hit distributions.
+		JPanel luckLine = new JPanel(new BorderLayout());
+		luckLine.add(createLuckLabel(fight, fight.getCompetitor()), BorderLayout.WEST);
+		luckLine.add(createLuckLabel(fight, fight.getOpponent()), BorderLayout.EAST);
+		mainPanel.add(luckLine, BorderLayout.NORTH);
+
 		add(mainPanel);
 		setVisible(true);
 	}
 
+	private static JLabel createLuckLabel(FightPerformance fight, Fighter fighter)
+	{
+		HitDistribution distribution = fighter.getDeservedDamageDistribution(fight);
+		JLabel luckLabel = new JLabel(fighter.getName() + ": " + fighter.getDamageDealt() + " dealt, " +
+			nf.format(distribution.getMean()) + " \u00B1 " + nf.format(Math.sqrt(distribution.getVariance())) +
+			" deserved (" + nf.format(fighter.getDamageLuckPercentile(fight)) + "th percentile)");
+		luckLabel.setToolTipText("<html>" + fighter.getName() + " dealt " + fighter.getDamageDealt() +
+			" damage. Their logged attacks deserved " + nf.format(distribution.getMean()) +
+			" on average, with a standard deviation of " + nf.format(Math.sqrt(distribution.getVariance())) + ".<br>" +
+			"Luck percentile: 50 = expected damage, >50 = lucky, <50 = unlucky</html>");
+		return luckLabel;
+	}
+
 	static class BufferedImageCellRenderer extends DefaultTableCellRenderer
 	{
 		@Override
@@ -466,10 +466,15 @@ public class FightPerformancePanel extends JPanel
 		openFightAnalysis.addActionListener(e -> new FightAnalysisFrame(fight, this.getRootPane()));
 		openFightAnalysis.setForeground(ColorScheme.BRAND_ORANGE);
 
+		// Create "Simulate Fight" popup menu/context menu
+		final JMenuItem simulateFight = new JMenuItem("Simulate Fight");
+		simulateFight.addActionListener(e -> PLUGIN.simulateFight(fight));
+
 		popupMenu.add(removeFight);
 		popupMenu.add(copyDiscordMsg);
 		popupMenu.add(copyFight);
 		popupMenu.add(openFightAnalysis);
+		popupMenu.add(simulateFight);
 		setComponentPopupMenu(popupMenu);
 
 		setMaximumSize(new Dimension(PluginPanel.PANEL_WIDTH, (int)getPreferredSize().getHeight()));
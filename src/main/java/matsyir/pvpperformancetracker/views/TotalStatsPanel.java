@@ -29,17 +29,21 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.GridLayout;
+import java.io.File;
 import java.math.RoundingMode;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.ProgressMonitor;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import matsyir.pvpperformancetracker.controllers.FightPerformance;
 import matsyir.pvpperformancetracker.controllers.Fighter;
 import static matsyir.pvpperformancetracker.PvpPerformanceTrackerPlugin.CONFIG;
@@ -52,6 +56,7 @@ import net.runelite.client.util.LinkBrowser;
 public class TotalStatsPanel extends JPanel
 {
 	private static final String WIKI_HELP_URL = "https://github.com/Matsyir/pvp-performance-tracker/wiki#pvp-performance-tracker";
+	private static final String EXPORT_FILE_NAME = "PvpFightHistory.json";
 	// number format for 0 decimal digit (mostly for commas in large numbers)
 	private static final NumberFormat nf = NumberFormat.getInstance();
 	static // initialize number format
@@ -181,6 +186,39 @@ public class TotalStatsPanel extends JPanel
 			PLUGIN.importUserFightHistoryData(fightHistoryData);
 		});
 
+		// Create "Save Fight History To File" popup menu/context menu item
+		final JMenuItem exportFightHistoryFile = new JMenuItem("Save Fight History To File");
+		exportFightHistoryFile.addActionListener(e ->
+		{
+			JFileChooser fileChooser = createFightHistoryFileChooser();
+			fileChooser.setSelectedFile(new File(EXPORT_FILE_NAME));
+			if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) { return; }
+
+			File file = fileChooser.getSelectedFile();
+			if (!file.getName().contains("."))
+			{
+				file = new File(file.getParentFile(), file.getName() + ".json");
+			}
+			if (file.exists())
+			{
+				int dialogResult = JOptionPane.showConfirmDialog(this, file.getName() + " already exists. Do you want to replace it?", "Warning", JOptionPane.YES_NO_OPTION);
+				if (dialogResult != JOptionPane.YES_OPTION) { return; }
+			}
+
+			PLUGIN.exportFightHistoryToFile(file, createProgressMonitor("Saving fight history to " + file.getName() + "..."));
+		});
+
+		// Create "Import Fight History From File" popup menu/context menu item
+		final JMenuItem importFightHistoryFile = new JMenuItem("Import Fight History From File");
+		importFightHistoryFile.addActionListener(e ->
+		{
+			JFileChooser fileChooser = createFightHistoryFileChooser();
+			if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) { return; }
+
+			File file = fileChooser.getSelectedFile();
+			PLUGIN.importUserFightHistoryFile(file, createProgressMonitor("Importing fight history from " + file.getName() + "..."));
+		});
+
 		// Create "Fight Analysis (Advanced)" popup menu/context menu item
 		final JMenuItem fightAnalysis = new JMenuItem("Fight Analysis (Advanced)");
 		fightAnalysis.addActionListener(e -> new FightAnalysisFrame(TotalStatsPanel.this.getRootPane()));
@@ -190,6 +228,8 @@ public class TotalStatsPanel extends JPanel
 		popupMenu.add(removeAllFights);
 		popupMenu.add(exportFightHistory);
 		popupMenu.add(importFightHistory);
+		popupMenu.add(exportFightHistoryFile);
+		popupMenu.add(importFightHistoryFile);
 		popupMenu.add(fightAnalysis);
 		setComponentPopupMenu(popupMenu);
 
@@ -458,6 +498,21 @@ public class TotalStatsPanel extends JPanel
 		return nf1.format(number / 1000.0) + "k";
 	}
 
+	private JFileChooser createFightHistoryFileChooser()
+	{
+		JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setFileFilter(new FileNameExtensionFilter("Fight history data (*.json)", "json"));
+		return fileChooser;
+	}
+
+	// progress from 0 to 100, which pops up if the operation takes a moment, and can be cancelled.
+	private ProgressMonitor createProgressMonitor(String message)
+	{
+		ProgressMonitor progressMonitor = new ProgressMonitor(this, message, null, 0, 100);
+		progressMonitor.setMillisToDecideToPopup(250);
+		return progressMonitor;
+	}
+
 	public void addFight(FightPerformance fight)
 	{
 		numFights++;
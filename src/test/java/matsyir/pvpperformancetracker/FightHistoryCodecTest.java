@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import matsyir.pvpperformancetracker.controllers.FightPerformance;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+import matsyir.pvpperformancetracker.models.FightType;
+import net.runelite.api.HeadIcon;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class FightHistoryCodecTest
+{
+	private static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+
+	private static FightPerformance[] readFixture() throws IOException
+	{
+		try (Reader reader = new InputStreamReader(
+			FightHistoryCodecTest.class.getResourceAsStream("fight_history_fixture.json"), StandardCharsets.UTF_8))
+		{
+			return GSON.fromJson(reader, FightPerformance[].class);
+		}
+	}
+
+	private static List<FightPerformance> roundTrip(FightPerformance[] fights) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FightHistoryCodec.Writer writer = new FightHistoryCodec.Writer(out);
+		for (FightPerformance fight : fights)
+		{
+			writer.write(fight);
+		}
+		writer.finish();
+
+		FightHistoryCodec.Reader reader = new FightHistoryCodec.Reader(new ByteArrayInputStream(out.toByteArray()));
+		List<FightPerformance> decoded = new ArrayList<>();
+		FightPerformance fight;
+		while ((fight = reader.read()) != null)
+		{
+			decoded.add(fight);
+		}
+		return decoded;
+	}
+
+	@Test
+	public void binaryRoundTripMatchesJson() throws IOException
+	{
+		FightPerformance[] fights = readFixture();
+		List<FightPerformance> decoded = roundTrip(fights);
+
+		assertEquals(GSON.toJsonTree(fights, FightPerformance[].class),
+			GSON.toJsonTree(decoded.toArray(new FightPerformance[0]), FightPerformance[].class));
+	}
+
+	@Test
+	public void binaryRoundTripKeepsUnusualValues() throws IOException
+	{
+		List<FightPerformance> decoded = roundTrip(readFixture());
+		assertEquals(2, decoded.size());
+
+		FightPerformance fight = decoded.get(0);
+		assertEquals(FightType.LMS_ZERK, fight.getFightType());
+		assertEquals(2, fight.getCompetitor().getGhostBarrageCount());
+		assertEquals(37.5, fight.getCompetitor().getGhostBarrageDeservedDamage(), 0);
+		assertEquals("Ĳsbeer ñ", fight.getOpponent().getName());
+
+		List<FightLogEntry> entries = fight.getCompetitor().getFightLogEntries();
+		assertNotNull(entries.get(0).getAttackerLevels());
+		assertNull(entries.get(1).getAttackerLevels());
+		assertNull(entries.get(1).getAttackerGear());
+		assertNull(entries.get(2).getAttackerLevels());
+		assertEquals(HeadIcon.SOUL_SPLIT, entries.get(2).getAttackerOverhead());
+		assertNull(entries.get(2).getDefenderOverhead());
+		assertEquals(-1, entries.get(2).getDefenderGear()[0]);
+		assertEquals(-5, entries.get(2).getAttackerOffensivePray());
+		// values that don't exist in this version are read as null, the same as from json.
+		assertNull(entries.get(3).getAttackerOverhead());
+		assertNull(fight.getOpponent().getFightLogEntries().get(0).getAnimationData());
+
+		FightPerformance emptyFight = decoded.get(1);
+		assertNull(emptyFight.getFightType());
+		assertEquals(0, emptyFight.getCompetitor().getFightLogEntries().size());
+		assertNull(emptyFight.getOpponent().getFightLogEntries());
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import matsyir.pvpperformancetracker.controllers.FightPerformance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FightHistoryStoreTest
+{
+	private static final int ENTRIES_PER_FIGHTER = 12;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PvpPerformanceTrackerPlugin previousPlugin;
+	private Gson previousGson;
+	private FightLogStore fightLogStore;
+
+	@Before
+	public void setUp()
+	{
+		previousPlugin = PvpPerformanceTrackerPlugin.PLUGIN;
+		previousGson = PvpPerformanceTrackerPlugin.GSON;
+		PvpPerformanceTrackerPlugin.GSON = FightLogStoreTest.gson();
+	}
+
+	@After
+	public void tearDown()
+	{
+		closeFightLogStore();
+		PvpPerformanceTrackerPlugin.PLUGIN = previousPlugin;
+		PvpPerformanceTrackerPlugin.GSON = previousGson;
+	}
+
+	// a store as the plugin would create it when starting up, reading the files left by the previous one.
+	private FightHistoryStore newStore() throws ReflectiveOperationException
+	{
+		closeFightLogStore();
+		fightLogStore = new FightLogStore(file(FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME), folder.getRoot(), 50);
+		FightLogStoreTest.usePluginFightLogStore(fightLogStore);
+		return new FightHistoryStore(folder.getRoot(), fightLogStore);
+	}
+
+	private void closeFightLogStore()
+	{
+		if (fightLogStore != null)
+		{
+			fightLogStore.close();
+		}
+	}
+
+	private File file(String name)
+	{
+		return new File(folder.getRoot(), name);
+	}
+
+	private static List<FightPerformance> fights(int from, int to) throws IOException
+	{
+		List<FightPerformance> fights = new ArrayList<>();
+		for (int i = from; i < to; i++)
+		{
+			fights.add(FightLogStoreTest.fight(i, ENTRIES_PER_FIGHTER));
+		}
+		return fights;
+	}
+
+	// load every fight, paging out their fight logs like the plugin does.
+	private List<FightPerformance> load(FightHistoryStore store) throws IOException
+	{
+		List<FightPerformance> fights = new ArrayList<>();
+		store.load(7, (List<FightPerformance> batch) ->
+		{
+			for (FightPerformance fight : batch)
+			{
+				fight.getCompetitor().pageOutFightLogEntries(fightLogStore);
+				fight.getOpponent().pageOutFightLogEntries(fightLogStore);
+				fights.add(fight);
+			}
+		});
+		return fights;
+	}
+
+	private static JsonElement json(List<FightPerformance> fights)
+	{
+		return PvpPerformanceTrackerPlugin.GSON.toJsonTree(fights.toArray(new FightPerformance[0]));
+	}
+
+	@Test
+	public void appendedFightsReloadAfterTheSnapshot() throws Exception
+	{
+		FightHistoryStore store = newStore();
+		List<FightPerformance> fights = fights(0, 10);
+		store.compact(fights.subList(0, 4), false);
+		for (FightPerformance fight : fights.subList(4, 10))
+		{
+			store.append(fight);
+		}
+		assertEquals(6, store.getJournalSize());
+
+		store = newStore();
+		assertEquals(json(fights), json(load(store)));
+		assertEquals(6, store.getJournalSize());
+		assertFalse(store.isCompactionDue());
+	}
+
+	@Test
+	public void compactionIsDueOnceEnoughFightsAreJournaled() throws Exception
+	{
+		FightHistoryStore store = newStore();
+		load(store);
+		FightPerformance fight = FightLogStoreTest.fight(0, 1);
+		for (int i = 0; i < 99; i++)
+		{
+			store.append(fight);
+		}
+		assertFalse(store.isCompactionDue());
+		store.append(fight);
+		assertTrue(store.isCompactionDue());
+
+		store.compact(load(newStore()), false);
+		assertFalse(store.isCompactionDue());
+	}
+
+	@Test
+	public void truncatedLastJournalLineIsSkipped() throws Exception
+	{
+		FightHistoryStore store = newStore();
+		load(store);
+		List<FightPerformance> fights = fights(0, 3);
+		for (FightPerformance fight : fights)
+		{
+			store.append(fight);
+		}
+
+		// as if the game crashed partway through appending the last fight.
+		try (RandomAccessFile journal = new RandomAccessFile(file(FightHistoryStore.FIGHT_HISTORY_JOURNAL_FNAME), "rw"))
+		{
+			journal.setLength(journal.length() - 40);
+		}
+
+		store = newStore();
+		assertEquals(json(fights.subList(0, 2)), json(load(store)));
+		assertEquals(2, store.getJournalSize());
+	}
+
+	@Test
+	public void jsonCompactionReloads() throws Exception
+	{
+		FightHistoryStore store = newStore();
+		load(store);
+		List<FightPerformance> fights = fights(0, 20);
+		for (FightPerformance fight : fights.subList(0, 5))
+		{
+			store.append(fight);
+		}
+		store.compact(fights, false);
+
+		assertTrue(file(PvpPerformanceTrackerPlugin.FIGHT_HISTORY_DATA_FNAME).exists());
+		assertFalse(file(FightHistoryStore.FIGHT_HISTORY_JOURNAL_FNAME).exists());
+		assertFalse(file(FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME).exists());
+		assertFalse(file(PvpPerformanceTrackerPlugin.FIGHT_HISTORY_DATA_FNAME + ".tmp").exists());
+		assertEquals(0, store.getJournalSize());
+
+		assertEquals(json(fights), json(load(newStore())));
+	}
+
+	@Test
+	public void binaryCompactionReloads() throws Exception
+	{
+		FightHistoryStore store = newStore();
+		load(store);
+		List<FightPerformance> fights = fights(0, 20);
+		store.compact(fights, true);
+
+		// the json snapshot is kept until the binary snapshot was read back once.
+		assertTrue(file(FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME).exists());
+		assertTrue(file(PvpPerformanceTrackerPlugin.FIGHT_HISTORY_DATA_FNAME).exists());
+		assertFalse(file(FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME + ".tmp").exists());
+
+		List<FightPerformance> loaded = load(newStore());
+		assertEquals(json(fights), json(loaded));
+		assertFalse(file(PvpPerformanceTrackerPlugin.FIGHT_HISTORY_DATA_FNAME).exists());
+		assertFalse(file(FightHistoryStore.FIGHT_HISTORY_BINARY_BACKUP_FNAME).exists());
+
+		// the loaded fights' logs are read back from the snapshot, including after it was replaced.
+		store = newStore();
+		loaded = load(store);
+		List<FightPerformance> moreFights = new ArrayList<>(loaded);
+		moreFights.addAll(fights(20, 25));
+		store.compact(moreFights, true);
+		assertEquals(json(fights), json(loaded));
+		assertEquals(json(moreFights), json(load(newStore())));
+	}
+
+	@Test
+	public void corruptBinarySnapshotFallsBackToItsBackup() throws Exception
+	{
+		List<FightPerformance> backupFights = fights(0, 20);
+		FightHistoryStore store = newStore();
+		load(store);
+		store.compact(backupFights, true);
+		load(newStore()); // reading the binary snapshot back drops the json snapshot
+
+		// the previous binary snapshot is moved to the backup.
+		store = newStore();
+		List<FightPerformance> fights = load(store);
+		fights.addAll(fights(20, 40));
+		store.compact(fights, true);
+		assertTrue(file(FightHistoryStore.FIGHT_HISTORY_BINARY_BACKUP_FNAME).exists());
+		assertFalse(file(PvpPerformanceTrackerPlugin.FIGHT_HISTORY_DATA_FNAME).exists());
+		List<JsonElement> expected = new ArrayList<>();
+		fights.forEach((FightPerformance f) -> expected.add(PvpPerformanceTrackerPlugin.GSON.toJsonTree(f)));
+		closeFightLogStore();
+
+		try (RandomAccessFile snapshot = new RandomAccessFile(file(FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME), "rw"))
+		{
+			snapshot.setLength(snapshot.length() / 2);
+		}
+
+		// the fights read before the error are kept, followed by every fight from the backup.
+		List<FightPerformance> loaded = load(newStore());
+		int readBeforeError = loaded.size() - backupFights.size();
+		assertTrue(readBeforeError >= 0 && readBeforeError < fights.size());
+		for (int i = 0; i < readBeforeError; i++)
+		{
+			assertEquals(expected.get(i), PvpPerformanceTrackerPlugin.GSON.toJsonTree(loaded.get(i)));
+		}
+		assertEquals(json(backupFights), json(loaded.subList(readBeforeError, loaded.size())));
+		assertTrue(file(FightHistoryStore.FIGHT_HISTORY_BINARY_BACKUP_FNAME).exists());
+	}
+}
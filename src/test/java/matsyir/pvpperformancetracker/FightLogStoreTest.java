@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import matsyir.pvpperformancetracker.controllers.FightPerformance;
+import matsyir.pvpperformancetracker.controllers.Fighter;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FightLogStoreTest
+{
+	private static final int MAX_RESIDENT_ENTRIES = 100;
+	private static final int ENTRIES_PER_PAGE = 10;
+	private static final int PAGE_COUNT = 30; // 3 times more entries than can be resident
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PvpPerformanceTrackerPlugin previousPlugin;
+	private Gson previousGson;
+
+	@Before
+	public void setUp()
+	{
+		previousPlugin = PvpPerformanceTrackerPlugin.PLUGIN;
+		previousGson = PvpPerformanceTrackerPlugin.GSON;
+		PvpPerformanceTrackerPlugin.GSON = gson();
+	}
+
+	@After
+	public void tearDown()
+	{
+		PvpPerformanceTrackerPlugin.PLUGIN = previousPlugin;
+		PvpPerformanceTrackerPlugin.GSON = previousGson;
+	}
+
+	static Gson gson()
+	{
+		return new GsonBuilder()
+			.excludeFieldsWithoutExposeAnnotation()
+			.registerTypeAdapterFactory(Fighter.PAGED_FIGHT_LOG_ADAPTER_FACTORY)
+			.create();
+	}
+
+	// paged out Fighters read their entries from the plugin's FightLogStore.
+	static void usePluginFightLogStore(FightLogStore store) throws ReflectiveOperationException
+	{
+		PvpPerformanceTrackerPlugin plugin = new PvpPerformanceTrackerPlugin();
+		Field field = PvpPerformanceTrackerPlugin.class.getDeclaredField("fightLogStore");
+		field.setAccessible(true);
+		field.set(plugin, store);
+		PvpPerformanceTrackerPlugin.PLUGIN = plugin;
+	}
+
+	// the first fixture fight, with entryCount log entries per fighter that are unique to the given index.
+	static FightPerformance fight(int index, int entryCount) throws IOException
+	{
+		JsonObject fight;
+		try (Reader reader = new InputStreamReader(
+			FightLogStoreTest.class.getResourceAsStream("fight_history_fixture.json"), StandardCharsets.UTF_8))
+		{
+			fight = new JsonParser().parse(reader).getAsJsonArray().get(0).getAsJsonObject();
+		}
+		fight.addProperty("t", 1690000000000L + index * 60000L);
+		for (String fighter : new String[] { "c", "o" })
+		{
+			JsonObject fighterJson = fight.getAsJsonObject(fighter);
+			fighterJson.addProperty("n", fighter + index);
+			fighterJson.add("l", entries(fighterJson.getAsJsonArray("l"), index, entryCount));
+		}
+		return gson().fromJson(fight, FightPerformance.class);
+	}
+
+	private static JsonArray entries(JsonArray templates, int index, int entryCount)
+	{
+		JsonArray entries = new JsonArray();
+		for (int i = 0; i < entryCount; i++)
+		{
+			JsonObject entry = templates.get(i % templates.size()).getAsJsonObject().deepCopy();
+			entry.addProperty("T", index * 1000 + i);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	private static ArrayList<FightLogEntry> entries(String attackerName, int index)
+	{
+		ArrayList<FightLogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < ENTRIES_PER_PAGE; i++)
+		{
+			JsonObject entry = new JsonObject();
+			entry.addProperty("t", 1690000000000L + i * 600);
+			entry.addProperty("T", index * 1000 + i);
+			entry.addProperty("f", i % 2 == 0);
+			entry.addProperty("d", index + i / 8.0);
+			entry.addProperty("h", i);
+			entry.addProperty("p", i % 3);
+			FightLogEntry logEntry = gson().fromJson(entry, FightLogEntry.class);
+			logEntry.attackerName = attackerName;
+			entries.add(logEntry);
+		}
+		return entries;
+	}
+
+	private static void assertEntries(JsonElement expected, String attackerName, List<FightLogEntry> actual)
+	{
+		assertNotNull(actual);
+		assertEquals(expected, gson().toJsonTree(actual));
+		actual.forEach((FightLogEntry e) -> assertEquals(attackerName, e.attackerName));
+	}
+
+	private FightLogStore store(File pageFileDir)
+	{
+		return new FightLogStore(new File(folder.getRoot(), FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME),
+			pageFileDir, MAX_RESIDENT_ENTRIES);
+	}
+
+	@Test
+	public void evictedPagesReadBack() throws IOException
+	{
+		FightLogStore store = store(folder.getRoot());
+		List<FightLogStore.Page> pages = new ArrayList<>();
+		List<JsonElement> expected = new ArrayList<>();
+		for (int i = 0; i < PAGE_COUNT; i++)
+		{
+			ArrayList<FightLogEntry> entries = entries("Fighter " + i, i);
+			expected.add(gson().toJsonTree(entries));
+			pages.add(store.pageOut(entries, "Fighter " + i));
+			assertTrue(store.getResidentEntryCount() <= MAX_RESIDENT_ENTRIES);
+		}
+
+		// read them back twice, so pages read from the page file get evicted and read again.
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int i = 0; i < PAGE_COUNT; i++)
+			{
+				assertEntries(expected.get(i), "Fighter " + i, store.read(pages.get(i)));
+				assertTrue(store.getResidentEntryCount() <= MAX_RESIDENT_ENTRIES);
+			}
+		}
+		store.close();
+	}
+
+	@Test
+	public void pagesStayCountedWhenThePageFileCantBeWritten() throws IOException
+	{
+		FightLogStore store = store(new File(folder.getRoot(), "missing"));
+		List<FightLogStore.Page> pages = new ArrayList<>();
+		List<JsonElement> expected = new ArrayList<>();
+		for (int i = 0; i < PAGE_COUNT; i++)
+		{
+			ArrayList<FightLogEntry> entries = entries("Fighter " + i, i);
+			expected.add(gson().toJsonTree(entries));
+			pages.add(store.pageOut(entries, "Fighter " + i));
+		}
+
+		// nothing could be evicted, so every entry is still in memory and counted.
+		assertEquals(PAGE_COUNT * ENTRIES_PER_PAGE, store.getResidentEntryCount());
+		for (int i = 0; i < PAGE_COUNT; i++)
+		{
+			assertEntries(expected.get(i), "Fighter " + i, store.read(pages.get(i)));
+		}
+		assertEquals(PAGE_COUNT * ENTRIES_PER_PAGE, store.getResidentEntryCount());
+		store.close();
+	}
+
+	@Test
+	public void snapshotPagesReadBackAfterReplacingAndReleasingTheSnapshot() throws Exception
+	{
+		File snapshotFile = new File(folder.getRoot(), FightHistoryStore.FIGHT_HISTORY_BINARY_DATA_FNAME);
+		File backupFile = new File(folder.getRoot(), FightHistoryStore.FIGHT_HISTORY_BINARY_BACKUP_FNAME);
+		FightLogStore store = store(folder.getRoot());
+		usePluginFightLogStore(store);
+
+		List<FightPerformance> fights = new ArrayList<>();
+		for (int i = 0; i < PAGE_COUNT / 2; i++)
+		{
+			fights.add(fight(i, ENTRIES_PER_PAGE));
+		}
+		List<JsonElement> expected = new ArrayList<>();
+		for (FightPerformance fight : fights)
+		{
+			expected.add(gson().toJsonTree(fight.getCompetitor().getFightLogEntries()));
+			expected.add(gson().toJsonTree(fight.getOpponent().getFightLogEntries()));
+		}
+		writeSnapshot(snapshotFile, fights);
+
+		// every fighter read from the snapshot reads its entries back from it.
+		List<FightPerformance> loadedFights = new ArrayList<>();
+		List<Fighter> fighters = new ArrayList<>();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(snapshotFile)))
+		{
+			FightHistoryCodec.Reader reader = new FightHistoryCodec.Reader(in, store);
+			FightPerformance fight;
+			while ((fight = reader.read()) != null)
+			{
+				loadedFights.add(fight);
+				fighters.add(fight.getCompetitor());
+				fighters.add(fight.getOpponent());
+			}
+		}
+		fighters.forEach((Fighter f) -> f.pageOutFightLogEntries(store));
+		assertFightersReadBack(store, fighters, expected);
+
+		// fights paged out since the snapshot was loaded, only written to the page file once evicted.
+		for (int i = PAGE_COUNT / 2; i < PAGE_COUNT; i++)
+		{
+			FightPerformance fight = fight(i, ENTRIES_PER_PAGE);
+			loadedFights.add(fight);
+			for (Fighter fighter : new Fighter[] { fight.getCompetitor(), fight.getOpponent() })
+			{
+				expected.add(gson().toJsonTree(fighter.getFightLogEntries()));
+				fighter.getFightLogEntries().forEach((FightLogEntry e) -> e.attackerName = fighter.getName());
+				fighter.pageOutFightLogEntries(store);
+				fighters.add(fighter);
+			}
+		}
+
+		// the new snapshot leaves out the first few fights, which then have to be moved to the page file.
+		List<FightPerformance> keptFights = loadedFights.subList(2, loadedFights.size());
+		File newSnapshotFile = new File(folder.getRoot(), snapshotFile.getName() + ".tmp");
+		Map<FightLogStore.Page, Long> pageOffsets = writeSnapshot(newSnapshotFile, keptFights);
+		assertEquals(fighters.size() - 4, pageOffsets.size());
+		store.replaceSnapshot(newSnapshotFile, pageOffsets, backupFile);
+		assertTrue(backupFile.exists());
+		assertFightersReadBack(store, fighters, expected);
+
+		// releasing the snapshot moves every page out of it, so it can be deleted.
+		store.releaseSnapshot();
+		assertTrue(snapshotFile.delete());
+		assertTrue(backupFile.delete());
+		assertFightersReadBack(store, fighters, expected);
+		store.close();
+	}
+
+	private static void assertFightersReadBack(FightLogStore store, List<Fighter> fighters, List<JsonElement> expected)
+		throws IOException
+	{
+		for (int i = 0; i < fighters.size(); i++)
+		{
+			Fighter fighter = fighters.get(i);
+			assertTrue(fighter.isFightLogPagedOut());
+			assertEntries(expected.get(i), fighter.getName(), store.read(fighter.getFightLogPage()));
+			assertTrue(store.getResidentEntryCount() <= MAX_RESIDENT_ENTRIES);
+		}
+	}
+
+	private static Map<FightLogStore.Page, Long> writeSnapshot(File file, List<FightPerformance> fights)
+		throws IOException
+	{
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+		{
+			FightHistoryCodec.Writer writer = new FightHistoryCodec.Writer(out);
+			for (FightPerformance fight : fights)
+			{
+				writer.write(fight);
+			}
+			writer.finish();
+			return writer.getFightLogPageOffsets();
+		}
+	}
+}
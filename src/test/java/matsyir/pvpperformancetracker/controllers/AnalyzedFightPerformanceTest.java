@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import matsyir.pvpperformancetracker.models.AnimationData;
+import matsyir.pvpperformancetracker.models.FightLogEntry;
+import net.runelite.api.HeadIcon;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AnalyzedFightPerformanceTest
+{
+	// only two loadouts and styles, so most attacks share their fingerprint with many others, as in real fights.
+	private static final int[][] GEAR = { { 0, 0, 0, 4151 + 512 }, { 0, 0, 0, 9185 + 512 } };
+	private static final AnimationData[] ANIMATIONS = { AnimationData.MELEE_SCIM_SLASH, AnimationData.RANGED_CROSSBOW_PVP };
+
+	// one logged attack of a simulated fight, as seen by both clients: the same fingerprint, on different ticks.
+	private static class Attack
+	{
+		private final int tick;
+		private final String attackerName;
+		private final int loadout;
+
+		private Attack(int tick, String attackerName, int loadout)
+		{
+			this.tick = tick;
+			this.attackerName = attackerName;
+			this.loadout = loadout;
+		}
+
+		private FightLogEntry log(int tickOffset)
+		{
+			FightLogEntry entry = new FightLogEntry(0, tick + tickOffset, true, GEAR[loadout], HeadIcon.MAGIC,
+				ANIMATIONS[loadout], 0, 0, 0, 0, false, null, GEAR[1 - loadout], HeadIcon.MELEE, 0);
+			entry.attackerName = attackerName;
+			return entry;
+		}
+	}
+
+	private static List<Attack> fight(Random random, int attacks)
+	{
+		List<Attack> fight = new ArrayList<>();
+		int tick = 1000;
+		for (int i = 0; i < attacks; i++)
+		{
+			tick += 1 + random.nextInt(4);
+			fight.add(new Attack(tick, random.nextBoolean() ? "Main" : "Opposing", random.nextInt(2)));
+		}
+		return fight;
+	}
+
+	// logs the fight's attacks, except the skipped ones, remembering which attack each entry is from.
+	private static ArrayList<FightLogEntry> log(List<Attack> fight, Set<Integer> skipped, int tickOffset, int driftFrom,
+		Map<FightLogEntry, Integer> attackIdx)
+	{
+		ArrayList<FightLogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < fight.size(); i++)
+		{
+			if (skipped.contains(i)) { continue; }
+
+			FightLogEntry entry = fight.get(i).log(tickOffset + (i >= driftFrom ? 1 : 0));
+			attackIdx.put(entry, i);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	// aligns both clients' logs, checking every match pairs up the same attack, and returns the number of matches.
+	private static int alignAndCheck(List<Attack> fight, Set<Integer> mainSkipped, Set<Integer> opposingSkipped,
+		int tickOffset, int driftFrom)
+	{
+		Map<FightLogEntry, Integer> attackIdx = new IdentityHashMap<>();
+		ArrayList<FightLogEntry> mainEntries = log(fight, mainSkipped, 0, Integer.MAX_VALUE, attackIdx);
+		ArrayList<FightLogEntry> opposingEntries = log(fight, opposingSkipped, tickOffset, driftFrom, attackIdx);
+
+		ArrayList<FightLogEntry[]> matches = AnalyzedFightPerformance.alignFullEntries(mainEntries, opposingEntries);
+		for (FightLogEntry[] match : matches)
+		{
+			assertEquals("tick " + match[0].getTick(), attackIdx.get(match[0]), attackIdx.get(match[1]));
+		}
+		return matches.size();
+	}
+
+	@Test
+	public void constantOffsetMatchesEveryAttack()
+	{
+		List<Attack> fight = fight(new Random(0), 300);
+		assertEquals(300, alignAndCheck(fight, new HashSet<>(), new HashSet<>(), -37, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void midFightDriftMatchesEveryAttack()
+	{
+		// the opposing client's tick difference changes by one halfway through, as if it lagged a tick behind.
+		List<Attack> fight = fight(new Random(1), 300);
+		assertEquals(300, alignAndCheck(fight, new HashSet<>(), new HashSet<>(), -37, 150));
+	}
+
+	@Test
+	public void unequalLengthsMatchCommonAttacks()
+	{
+		// attacks missed by either client, including the first & last ones, leave 300 - 8 attacks both logged.
+		List<Attack> fight = fight(new Random(2), 300);
+		Set<Integer> mainSkipped = new HashSet<>(Arrays.asList(5, 120, 121));
+		Set<Integer> opposingSkipped = new HashSet<>(Arrays.asList(0, 10, 11, 200, 298));
+		assertEquals(292, alignAndCheck(fight, mainSkipped, opposingSkipped, 12, 150));
+
+		// all of the opposing client's last attacks missing, e.g. if it disconnected.
+		Set<Integer> lastMissing = new HashSet<>();
+		for (int i = 250; i < 300; i++) { lastMissing.add(i); }
+		assertEquals(250, alignAndCheck(fight, new HashSet<>(), lastMissing, 12, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void longFightWithMissedAttacks()
+	{
+		Random random = new Random(3);
+		List<Attack> fight = fight(random, 3000);
+		Set<Integer> mainSkipped = new HashSet<>(), opposingSkipped = new HashSet<>();
+		for (int i = 0; i < fight.size(); i++)
+		{
+			if (random.nextInt(100) < 3) { mainSkipped.add(i); }
+			if (random.nextInt(100) < 3) { opposingSkipped.add(i); }
+		}
+		Set<Integer> bothLogged = new HashSet<>();
+		for (int i = 0; i < fight.size(); i++)
+		{
+			if (!mainSkipped.contains(i) && !opposingSkipped.contains(i)) { bothLogged.add(i); }
+		}
+
+		int matches = alignAndCheck(fight, mainSkipped, opposingSkipped, -5, 1500);
+		assertTrue(matches + " of " + bothLogged.size(), matches >= bothLogged.size() * 0.98);
+	}
+
+	@Test
+	public void tooDifferentLengthsAreNotAligned()
+	{
+		Random random = new Random(4);
+		List<Attack> fight = fight(random, 400);
+		Set<Integer> opposingSkipped = new HashSet<>();
+		for (int i = 0; i < 300; i++) { opposingSkipped.add(i); }
+
+		assertEquals(0, alignAndCheck(fight, new HashSet<>(), opposingSkipped, 0, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void emptyLogsHaveNoMatches()
+	{
+		FightLogEntry entry = new Attack(1000, "Main", 0).log(0);
+		ArrayList<FightLogEntry> entries = new ArrayList<>(Arrays.asList(entry));
+
+		assertEquals(0, AnalyzedFightPerformance.alignFullEntries(new ArrayList<>(), new ArrayList<>()).size());
+		assertEquals(0, AnalyzedFightPerformance.alignFullEntries(entries, new ArrayList<>()).size());
+		assertSame(entry, AnalyzedFightPerformance.alignFullEntries(entries, entries).get(0)[0]);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BatchFightAnalysisTest
+{
+	private static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+
+	// a fight from the competitor's client, whose first logged attack is at startTime.
+	private static FightPerformance fight(String competitor, String opponent, long startTime, long lastFightTime)
+	{
+		return GSON.fromJson("{\"c\":{\"n\":\"" + competitor + "\",\"l\":[{\"t\":" + startTime + ",\"T\":1,\"f\":true}]}," +
+			"\"o\":{\"n\":\"" + opponent + "\",\"l\":[]},\"t\":" + lastFightTime + ",\"l\":\"NORMAL\"}", FightPerformance.class);
+	}
+
+	private static void assertPair(FightPerformance[] pair, FightPerformance first, FightPerformance second)
+	{
+		assertSame(first, pair[0]);
+		assertSame(second, pair[1]);
+	}
+
+	private static void assertEachFightUsedOnce(List<FightPerformance[]> pairs)
+	{
+		Set<FightPerformance> used = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (FightPerformance[] pair : pairs)
+		{
+			assertTrue(used.add(pair[0]));
+			assertTrue(used.add(pair[1]));
+		}
+	}
+
+	@Test
+	public void pairsMirroredNames()
+	{
+		FightPerformance main = fight("Zezima", "Lynx Titan", 1000, 2000);
+		FightPerformance sameSide = fight("Zezima", "Lynx Titan", 1000, 2000);
+		FightPerformance otherOpponent = fight("Zezima", "Woox", 1000, 2000);
+		FightPerformance mirrored = fight("lynx titan", "ZEZIMA", 1100, 2050); // names are case insensitive
+
+		List<FightPerformance[]> pairs = BatchFightAnalysis.pairFights(Arrays.asList(main, sameSide, otherOpponent, mirrored));
+
+		assertEquals(1, pairs.size());
+		assertPair(pairs.get(0), main, mirrored);
+	}
+
+	@Test
+	public void pairsOverlappingTimeWindows()
+	{
+		FightPerformance first = fight("Zezima", "Woox", 1000, 2000);
+		FightPerformance second = fight("Zezima", "Woox", 5000, 6000);
+		FightPerformance firstMirrored = fight("Woox", "Zezima", 1900, 2100); // only overlaps the first's end
+		FightPerformance secondMirrored = fight("Woox", "Zezima", 4000, 5000); // ends on the second's start
+		FightPerformance neither = fight("Woox", "Zezima", 3000, 4000);
+
+		List<FightPerformance[]> pairs = BatchFightAnalysis.pairFights(
+			Arrays.asList(first, second, firstMirrored, secondMirrored, neither));
+
+		assertEquals(2, pairs.size());
+		assertPair(pairs.get(0), first, firstMirrored);
+		assertPair(pairs.get(1), second, secondMirrored);
+	}
+
+	@Test
+	public void usesEachFightOnce()
+	{
+		// both mirrored fights overlap both fights: the first fight takes the one that ended closest to it,
+		// leaving the other one for the second fight.
+		FightPerformance first = fight("Zezima", "Woox", 1000, 3000);
+		FightPerformance second = fight("Zezima", "Woox", 1500, 2600);
+		FightPerformance endsLater = fight("Woox", "Zezima", 1200, 3100);
+		FightPerformance endsSooner = fight("Woox", "Zezima", 1200, 2500);
+		FightPerformance third = fight("Zezima", "Woox", 1000, 3000); // nothing left to pair with
+
+		List<FightPerformance[]> pairs = BatchFightAnalysis.pairFights(
+			Arrays.asList(first, second, endsLater, endsSooner, third));
+
+		assertEquals(2, pairs.size());
+		assertPair(pairs.get(0), first, endsLater);
+		assertPair(pairs.get(1), second, endsSooner);
+		assertEachFightUsedOnce(pairs);
+	}
+
+	@Test
+	public void usesEachFightOnceWithManyOverlaps()
+	{
+		FightPerformance[] fights = new FightPerformance[40];
+		for (int i = 0; i < fights.length; i++)
+		{
+			// every fight overlaps every other one, on either side.
+			fights[i] = i % 2 == 0 ? fight("Zezima", "Woox", 1000 + i, 5000 + i * 7) : fight("Woox", "Zezima", 1000 + i, 5000 + i * 3);
+		}
+
+		List<FightPerformance[]> pairs = BatchFightAnalysis.pairFights(Arrays.asList(fights));
+
+		assertEquals(20, pairs.size());
+		assertEachFightUsedOnce(pairs);
+	}
+}
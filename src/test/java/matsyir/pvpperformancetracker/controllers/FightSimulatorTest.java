@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import matsyir.pvpperformancetracker.models.HitDistribution;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FightSimulatorTest
+{
+	private static final double EPSILON = 1e-9;
+	private static final int HP = 99;
+
+	// a hit that always deals exactly the given damage.
+	private static HitDistribution exactly(int damage)
+	{
+		double[] probabilities = new double[damage + 1];
+		probabilities[damage] = 1;
+		return new HitDistribution(probabilities);
+	}
+
+	// attacks alternating between the competitor and the opponent, one per tick, the competitor first.
+	private static FightSimulator alternatingFight(HitDistribution... hitDistributions)
+	{
+		int[] ticks = new int[hitDistributions.length];
+		boolean[] competitorAttacks = new boolean[hitDistributions.length];
+		for (int i = 0; i < hitDistributions.length; i++)
+		{
+			ticks[i] = i;
+			competitorAttacks[i] = i % 2 == 0;
+		}
+		return new FightSimulator(HP, ticks, competitorAttacks, hitDistributions);
+	}
+
+	// uniform 0..maxHit hits that only land with the given accuracy, like an attack without a min hit.
+	private static HitDistribution attack(int maxHit, double accuracy)
+	{
+		double[] probabilities = new double[maxHit + 1];
+		for (int i = 0; i <= maxHit; i++)
+		{
+			probabilities[i] = accuracy / (maxHit + 1);
+		}
+		probabilities[0] += 1 - accuracy;
+		return new HitDistribution(probabilities);
+	}
+
+	private static FightSimulator randomFight(long seed, int attackCount)
+	{
+		Random random = new Random(seed);
+		HitDistribution[] hitDistributions = new HitDistribution[attackCount];
+		for (int i = 0; i < attackCount; i++)
+		{
+			hitDistributions[i] = attack(10 + random.nextInt(40), 0.2 + random.nextDouble() * 0.7);
+		}
+		return alternatingFight(hitDistributions);
+	}
+
+	@Test
+	public void attackSamplerMatchesItsDistribution()
+	{
+		double[] probabilities = { 0.1, 0, 0.25, 0.05, 0.6, 0, 0.0001 };
+		FightSimulator.AttackSampler sampler = new FightSimulator.AttackSampler(new HitDistribution(probabilities));
+		SplittableRandom random = new SplittableRandom(7);
+		int samples = 1_000_000;
+		int[] counts = new int[probabilities.length];
+		for (int i = 0; i < samples; i++)
+		{
+			counts[sampler.sample(random)]++;
+		}
+
+		for (int damage = 0; damage < probabilities.length; damage++)
+		{
+			double p = probabilities[damage];
+			double frequency = (double) counts[damage] / samples;
+			// within 5 standard deviations, and never sampled at all if impossible.
+			double tolerance = 5 * Math.sqrt(p * (1 - p) / samples);
+			assertEquals("damage " + damage, p, frequency, tolerance);
+		}
+	}
+
+	@Test
+	public void attackSamplerOnlyHitsTheOnlyPossibleDamage()
+	{
+		FightSimulator.AttackSampler sampler = new FightSimulator.AttackSampler(exactly(42));
+		SplittableRandom random = new SplittableRandom(7);
+		for (int i = 0; i < 10_000; i++)
+		{
+			assertEquals(42, sampler.sample(random));
+		}
+	}
+
+	@Test
+	public void alwaysLethalFirstAttackAlwaysWins()
+	{
+		FightSimulator.Result result = alternatingFight(exactly(HP), exactly(50), exactly(50)).simulate(25_001, 1);
+
+		assertEquals(25_001, result.getIterations());
+		assertEquals(1, result.getCompetitorWinChance(), 0);
+		assertEquals(0, result.getOpponentWinChance(), 0);
+		assertEquals(0, result.getNoDeathChance(), 0);
+		// the later attacks never happen, so the HP stays as it was after the kill.
+		assertArrayEquals(new double[] { HP, HP, HP }, result.getCompetitorHp(), 0);
+		assertArrayEquals(new double[] { 0, 0, 0 }, result.getOpponentHp(), 0);
+	}
+
+	@Test
+	public void hpAfterDeathIsCarriedToTheLaterAttacks()
+	{
+		// the competitor's first attack kills half of the time, otherwise the fight goes on without deaths.
+		double[] halfLethal = new double[HP + 1];
+		halfLethal[0] = 0.5;
+		halfLethal[HP] = 0.5;
+		FightSimulator.Result result = alternatingFight(new HitDistribution(halfLethal), exactly(10), exactly(5))
+			.simulate(100_000, 3);
+
+		double winChance = result.getCompetitorWinChance();
+		assertEquals(0.5, winChance, 0.01);
+		assertEquals(0, result.getOpponentWinChance(), 0);
+		assertEquals(1 - winChance, result.getNoDeathChance(), EPSILON);
+
+		// the same iterations are averaged after every attack, including the ones that ended with the kill.
+		double surviving = 1 - winChance;
+		assertArrayEquals(new double[] { HP, HP - 10 * surviving, HP - 10 * surviving },
+			result.getCompetitorHp(), EPSILON);
+		assertArrayEquals(new double[] { HP * surviving, HP * surviving, (HP - 5) * surviving },
+			result.getOpponentHp(), EPSILON);
+	}
+
+	@Test
+	public void sameSeedGivesTheSameResult()
+	{
+		FightSimulator simulator = randomFight(11, 40);
+		FightSimulator.Result first = simulator.simulate(123_456, 99);
+		FightSimulator.Result second = randomFight(11, 40).simulate(123_456, 99);
+
+		assertEquals(first.getCompetitorWinChance(), second.getCompetitorWinChance(), 0);
+		assertEquals(first.getOpponentWinChance(), second.getOpponentWinChance(), 0);
+		assertArrayEquals(first.getTicks(), second.getTicks());
+		assertArrayEquals(first.getCompetitorHp(), second.getCompetitorHp(), 0);
+		assertArrayEquals(first.getOpponentHp(), second.getOpponentHp(), 0);
+		assertTrue(first.getCompetitorWinChance() > 0 && first.getOpponentWinChance() > 0);
+	}
+}
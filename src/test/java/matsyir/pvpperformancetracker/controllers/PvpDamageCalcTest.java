@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.controllers;
+
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class PvpDamageCalcTest
+{
+	private static final int CASES = 200000;
+
+	// the original per-roll loop getAverageRaisedMinHit replaced, used as the reference.
+	private static double loopAverageRaisedMinHit(int minHit, int maxHit, double accuracyAdjuster)
+	{
+		int total = 0;
+		for (int i = 0; i <= maxHit; i++)
+		{
+			total += i < minHit ? minHit / accuracyAdjuster : i;
+		}
+
+		return (double) total / maxHit;
+	}
+
+	private static double loopAverageMinToMaxHit(int minHit, int maxHit)
+	{
+		double total = 0;
+		for (int i = minHit; i <= maxHit; i++)
+		{
+			total += i;
+		}
+
+		return total / (maxHit - minHit + 1);
+	}
+
+	@Test
+	public void raisedMinHitMatchesLoop()
+	{
+		Random random = new Random(0);
+		for (int i = 0; i < CASES; i++)
+		{
+			int maxHit = 1 + random.nextInt(150);
+			// min hits are usually a fraction of the max hit (vls/swh) or fixed (dbow), but cover above max too
+			int minHit = random.nextInt(maxHit + 20);
+			double accuracyAdjuster = random.nextBoolean() ? 1 : 0.01 + random.nextDouble() * 0.99;
+
+			assertEquals("min=" + minHit + " max=" + maxHit + " adj=" + accuracyAdjuster,
+				loopAverageRaisedMinHit(minHit, maxHit, accuracyAdjuster),
+				PvpDamageCalc.getAverageRaisedMinHit(minHit, maxHit, accuracyAdjuster), 0);
+		}
+	}
+
+	@Test
+	public void raisedMinHitEdgeCasesMatchLoop()
+	{
+		int[][] hits = { { 0, 1 }, { 1, 1 }, { 2, 1 }, { -3, 10 }, { 16, 16 } };
+		for (int[] hit : hits)
+		{
+			for (double accuracyAdjuster : new double[] { 1, 0.5, 0.123 })
+			{
+				assertEquals(loopAverageRaisedMinHit(hit[0], hit[1], accuracyAdjuster),
+					PvpDamageCalc.getAverageRaisedMinHit(hit[0], hit[1], accuracyAdjuster), 0);
+			}
+		}
+	}
+
+	@Test
+	public void raisedMinHitWithoutMaxHitIsZero()
+	{
+		// the loop divided by a max hit of 0 (NaN or infinity) or below (-0.0), the average is simply 0 instead.
+		int[][] hits = { { 0, 0 }, { 1, 0 }, { 5, 0 }, { 0, -1 }, { 3, -5 } };
+		for (int[] hit : hits)
+		{
+			for (double accuracyAdjuster : new double[] { 1, 0.5, 0.123 })
+			{
+				assertEquals(0, PvpDamageCalc.getAverageRaisedMinHit(hit[0], hit[1], accuracyAdjuster), 0);
+			}
+		}
+	}
+
+	@Test
+	public void minToMaxHitMatchesLoop()
+	{
+		Random random = new Random(1);
+		for (int i = 0; i < CASES; i++)
+		{
+			int maxHit = random.nextInt(150);
+			int minHit = random.nextInt(maxHit + 1);
+
+			assertEquals("min=" + minHit + " max=" + maxHit, loopAverageMinToMaxHit(minHit, maxHit),
+				PvpDamageCalc.getAverageMinToMaxHit(minHit, maxHit), 1e-9);
+		}
+	}
+}
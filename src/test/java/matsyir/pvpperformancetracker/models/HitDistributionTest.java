@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022, Matsyir <https://github.com/Matsyir>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package matsyir.pvpperformancetracker.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class HitDistributionTest
+{
+	private static final double EPSILON = 1e-9;
+
+	// uniform distribution over 0..maxHit, like an accurate attack without a min hit.
+	private static double[] uniform(int maxHit)
+	{
+		double[] probabilities = new double[maxHit + 1];
+		for (int i = 0; i <= maxHit; i++)
+		{
+			probabilities[i] = 1.0 / (maxHit + 1);
+		}
+		return probabilities;
+	}
+
+	private static double binomial(int n, int k, double p)
+	{
+		double coefficient = 1;
+		for (int i = 1; i <= k; i++)
+		{
+			coefficient = coefficient * (n - k + i) / i;
+		}
+		return coefficient * Math.pow(p, k) * Math.pow(1 - p, n - k);
+	}
+
+	private static double[] referenceConvolve(double[] a, double[] b)
+	{
+		double[] result = new double[a.length + b.length - 1];
+		for (int i = 0; i < a.length; i++)
+		{
+			for (int j = 0; j < b.length; j++)
+			{
+				result[i + j] += a[i] * b[j];
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void directConvolutionOfUniformsIsTriangular()
+	{
+		// below the FFT threshold: two uniform 0..9 hits sum to a triangular distribution over 0..18.
+		HitDistribution sum = new HitDistribution(uniform(9)).add(new HitDistribution(uniform(9)));
+
+		assertEquals(18, sum.getMaxDamage());
+		for (int damage = 0; damage <= 18; damage++)
+		{
+			assertEquals("damage=" + damage, (10 - Math.abs(damage - 9)) / 100.0, sum.getProbability(damage), EPSILON);
+		}
+	}
+
+	@Test
+	public void fftConvolutionOfUniformsIsTriangular()
+	{
+		// both sides above the FFT threshold: two uniform 0..199 hits sum to a triangular distribution over 0..398.
+		HitDistribution sum = new HitDistribution(uniform(199)).add(new HitDistribution(uniform(199)));
+
+		assertEquals(398, sum.getMaxDamage());
+		for (int damage = 0; damage <= 398; damage++)
+		{
+			assertEquals("damage=" + damage, (200 - Math.abs(damage - 199)) / 40000.0, sum.getProbability(damage), EPSILON);
+		}
+	}
+
+	@Test
+	public void fftConvolutionMatchesDirect()
+	{
+		Random random = new Random(0);
+		for (int test = 0; test < 20; test++)
+		{
+			double[] a = new double[64 + random.nextInt(300)];
+			double[] b = new double[64 + random.nextInt(300)];
+			for (int i = 0; i < a.length; i++) { a[i] = random.nextDouble(); }
+			for (int i = 0; i < b.length; i++) { b[i] = random.nextDouble(); }
+
+			double[] expected = referenceConvolve(a, b);
+			double[] result = HitDistribution.convolve(a, b);
+			assertEquals(expected.length, result.length);
+			for (int i = 0; i < expected.length; i++)
+			{
+				assertEquals("a=" + a.length + " b=" + b.length + " i=" + i, expected[i], result[i], 1e-9 * expected.length);
+			}
+		}
+	}
+
+	@Test
+	public void sumOfHitsOrMissesIsBinomial()
+	{
+		// 500 attacks that hit 1 with a 30% chance: enough sums go through FFT once they get long.
+		List<HitDistribution> attacks = Collections.nCopies(500, new HitDistribution(new double[] { 0.7, 0.3 }));
+		HitDistribution sum = HitDistribution.sum(attacks);
+
+		assertEquals(500, sum.getMaxDamage());
+		assertEquals(150, sum.getMean(), EPSILON);
+		assertEquals(105, sum.getVariance(), 1e-6);
+		for (int damage = 0; damage <= 500; damage++)
+		{
+			assertEquals("damage=" + damage, binomial(500, damage, 0.3), sum.getProbability(damage), EPSILON);
+		}
+	}
+
+	@Test
+	public void sumOfUniformsHasSummedMeanAndVariance()
+	{
+		// mixed lengths, so the pairwise sums use both convolutions. Means & variances of independent hits add up.
+		List<HitDistribution> attacks = new ArrayList<>();
+		double mean = 0, variance = 0;
+		for (int i = 0; i < 301; i++)
+		{
+			int maxHit = i % 50;
+			attacks.add(new HitDistribution(uniform(maxHit)));
+			mean += maxHit / 2.0;
+			variance += ((maxHit + 1) * (maxHit + 1) - 1) / 12.0;
+		}
+		HitDistribution sum = HitDistribution.sum(attacks);
+
+		assertEquals(mean, sum.getMean(), 1e-6);
+		assertEquals(variance, sum.getVariance(), 1e-4);
+		assertEquals(1, sum.getCumulativeProbability(sum.getMaxDamage()), 1e-9);
+	}
+
+	@Test
+	public void sumOfNothingIsNone()
+	{
+		HitDistribution sum = HitDistribution.sum(Collections.emptyList());
+
+		assertEquals(0, sum.getMaxDamage());
+		assertEquals(1, sum.getProbability(0), 0);
+	}
+
+	@Test
+	public void percentileEdges()
+	{
+		HitDistribution distribution = new HitDistribution(uniform(9));
+
+		// outside of the possible damage range
+		assertEquals(0, distribution.getPercentile(-1), 0);
+		assertEquals(0, distribution.getPercentile(Integer.MIN_VALUE), 0);
+		assertEquals(100, distribution.getPercentile(10), 0);
+		assertEquals(100, distribution.getPercentile(Integer.MAX_VALUE), 0);
+		// only half of the chance to deal exactly the min/max damage counts
+		assertEquals(5, distribution.getPercentile(0), EPSILON);
+		assertEquals(95, distribution.getPercentile(9), EPSILON);
+		// symmetric around 4.5, so 4 and 5 are equally far from 50
+		assertEquals(45, distribution.getPercentile(4), EPSILON);
+		assertEquals(55, distribution.getPercentile(5), EPSILON);
+		// an attack that can't deal damage always deals the median
+		assertEquals(50, HitDistribution.NONE.getPercentile(0), 0);
+	}
+}